@@ -173,7 +173,7 @@ def compileProgram(mainclassname):
 # return (boolean indicating if succeeded, output message)
 
     # do the compile
-    compile_cmd = 'javac -cp "../lib/*" '+mainclassname+'.java'
+    compile_cmd = 'javac -cp "../lib/*:." '+mainclassname+'.java'
     (retcode,output) = execCommand(compile_cmd)
 
     # If compilation failed
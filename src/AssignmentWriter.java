@@ -0,0 +1,27 @@
+import java.io.IOException;
+
+/*
+ * Output layer for assignment listings.
+ *
+ * A listing is written as begin, then one write per listed assignment in
+ * increasing index order, then finish. Without debug mode only satisfying
+ * assignments are passed to write; in debug mode every assignment is.
+ */
+public interface AssignmentWriter {
+
+    // Writes whatever precedes the listing
+    void begin(String command, boolean sat) throws IOException;
+
+    // Writes one assignment and the value the expression took under it
+    void write(long bits, boolean value) throws IOException;
+
+    // Number of bytes of listing produced so far, including those still
+    // buffered
+    long bytes();
+
+    // Passes everything written so far on to the underlying stream
+    void flush() throws IOException;
+
+    // Completes the listing and flushes it
+    void finish() throws IOException;
+}
@@ -0,0 +1,71 @@
+import java.io.StringWriter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import bool_exp.ASTNode;
+import bool_exp.AstExporter;
+import bool_exp.BoolSatParser;
+
+// Junit testing of the streaming AST exporter and the parser it feeds on
+public class AstExporterTest {
+    // Exports an expression with the given exporter and returns the output
+    private String export(AstExporter exporter, String expression)
+            throws Exception {
+        StringWriter out = new StringWriter();
+        exporter.export(BoolSatParser.parse(expression), out);
+        return out.toString();
+    }
+
+    // Tests that nodes are numbered in the order they are written
+    @Test
+    public void testSequentialIds() {
+        Assert.assertEquals("digraph expression_tree {\n"
+                + "\t0 [label=\"AND\"];\n"
+                + "\t1 [label=\"ID: a\" shape=box];\n"
+                + "\t0 -> 1;\n"
+                + "\t2 [label=\"NOT\"];\n"
+                + "\t0 -> 2;\n"
+                + "\t3 [label=\"ID: b\" shape=box];\n"
+                + "\t2 -> 3;\n"
+                + "}\n", BoolSatParser.dotify(BoolSatParser.parse("a && !b")));
+    }
+
+    // Tests that identical subtrees are written once and caps truncate
+    @Test
+    public void testCollapseAndCaps() throws Exception {
+        AstExporter collapsed = new AstExporter(AstExporter.Format.JSON);
+        collapsed.setCollapse(true);
+        String json = export(collapsed, "(a && b) || (a && b)");
+        Assert.assertEquals(1, json.split("\"AND\"", -1).length - 1);
+        Assert.assertTrue(json.contains("{\"edge\":[3,2]},\n{\"edge\":[3,2]}"));
+        Assert.assertTrue(json.endsWith("\"truncated\":false}\n"));
+        AstExporter capped = new AstExporter(AstExporter.Format.DOT);
+        capped.setMaxNodes(2);
+        Assert.assertTrue(export(capped, "a || b || c")
+                .endsWith("\t// truncated after 2 nodes\n}\n"));
+    }
+
+    // Tests that negative caps are refused
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeDepth() {
+        new AstExporter(AstExporter.Format.DOT).setMaxDepth(-1);
+    }
+
+    // Tests that a chain far longer than the call stack allows is parsed
+    // and exported
+    @Test
+    public void testLongChain() throws Exception {
+        StringBuilder expression = new StringBuilder("v0");
+        for (int i = 1; i < 200000; i++) {
+            expression.append(i % 2 == 0 ? " || v" : " && v").append(i % 7);
+        }
+        ASTNode root = BoolSatParser.parse(expression.toString());
+        Assert.assertTrue(root.isOr());
+        AstExporter exporter = new AstExporter(AstExporter.Format.DOT);
+        exporter.setMaxDepth(3);
+        StringWriter out = new StringWriter();
+        exporter.export(root, out);
+        Assert.assertTrue(out.toString().contains("[label=\"...\""));
+    }
+}
@@ -0,0 +1,242 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import bool_exp.ASTNode;
+
+/*
+ * Reduced ordered binary decision diagrams over the variables of a
+ * VariableOrder, tested in that order (variable 0 at the top).
+ *
+ * Nodes are ints indexing three parallel arrays; 0 and 1 are the FALSE and
+ * TRUE terminals, whose variable is the number of variables so that they sort
+ * below every real one. A node is created only once per (variable, low,
+ * high) triple, found through an open addressing unique table, and results
+ * of and/or/not are remembered in a direct mapped cache.
+ *
+ * Building can be stopped through a CancellationToken, checked every 1024
+ * new nodes.
+ */
+public class Bdd {
+
+    public static final int FALSE = 0, TRUE = 1;
+
+    // Default limit on the number of nodes before giving up
+    public static final int MAX_NODES = 1 << 24;
+
+    private static final int AND = 0, OR = 1, NOT = 2;
+    private static final int CACHE_SIZE = 1 << 18;
+
+    private final int variables;
+    private final int maxNodes;
+    private int[] var = new int[1024];
+    private int[] low = new int[1024];
+    private int[] high = new int[1024];
+    private int size = 2;
+    private int root = FALSE;
+    private CancellationToken token = CancellationToken.NONE;
+    // Unique table holding node + 1, 0 marking a free slot
+    private int[] unique = new int[2048];
+    private final int[] cacheOp = new int[CACHE_SIZE];
+    private final int[] cacheA = new int[CACHE_SIZE];
+    private final int[] cacheB = new int[CACHE_SIZE];
+    private final int[] cacheResult = new int[CACHE_SIZE];
+
+    public Bdd(int variables, int maxNodes) {
+        this.variables = variables;
+        this.maxNodes = maxNodes;
+        var[FALSE] = variables;
+        var[TRUE] = variables;
+        Arrays.fill(cacheOp, -1);
+    }
+
+    // Builds the diagram of an expression; throws IllegalStateException when
+    // it needs more than MAX_NODES nodes
+    public static Bdd of(ASTNode root, VariableOrder order) {
+        return of(root, order, CancellationToken.NONE);
+    }
+
+    // Builds the diagram, stopping with a CancellationException when the
+    // token is cancelled
+    public static Bdd of(ASTNode root, VariableOrder order,
+            CancellationToken token) {
+        Bdd bdd = new Bdd(order.size(), MAX_NODES);
+        bdd.token = token;
+        bdd.root = bdd.build(root, order);
+        return bdd;
+    }
+
+    // Root of the diagram built by of
+    public int root() {
+        return root;
+    }
+
+    public int variables() {
+        return variables;
+    }
+
+    // Number of nodes in use, terminals included
+    public int size() {
+        return size;
+    }
+
+    public int var(int node) {
+        return var[node];
+    }
+
+    public int low(int node) {
+        return low[node];
+    }
+
+    public int high(int node) {
+        return high[node];
+    }
+
+    // The diagram of a single variable
+    public int variable(int id) {
+        return mk(id, FALSE, TRUE);
+    }
+
+    public int and(int a, int b) {
+        return apply(AND, a, b);
+    }
+
+    public int or(int a, int b) {
+        return apply(OR, a, b);
+    }
+
+    public int not(int a) {
+        return apply(NOT, a, a);
+    }
+
+    private int build(ASTNode node, VariableOrder order) {
+        if (node.isId()) {
+            return variable(order.id(node.getId()));
+        } else if (node.isNot()) {
+            return not(build(node.child1, order));
+        }
+        // Folds a whole chain of the same operator without recursing down it
+        int result = node.isAnd() ? TRUE : FALSE;
+        for (ASTNode operand : chain(node)) {
+            int b = build(operand, order);
+            result = node.isAnd() ? and(result, b) : or(result, b);
+        }
+        return result;
+    }
+
+    private static ArrayList<ASTNode> chain(ASTNode node) {
+        ArrayList<ASTNode> operands = new ArrayList<ASTNode>();
+        ArrayDeque<ASTNode> pending = new ArrayDeque<ASTNode>();
+        pending.push(node);
+        while (!pending.isEmpty()) {
+            ASTNode cur = pending.pop();
+            if (cur.isAnd() == node.isAnd() && cur.isOr() == node.isOr()) {
+                pending.push(cur.child2);
+                pending.push(cur.child1);
+            } else {
+                operands.add(cur);
+            }
+        }
+        return operands;
+    }
+
+    private int apply(int op, int a, int b) {
+        // Terminal cases
+        if (op == NOT) {
+            if (a <= TRUE) {
+                return TRUE - a;
+            }
+        } else if (op == AND) {
+            if (a == FALSE || b == FALSE) {
+                return FALSE;
+            } else if (a == TRUE || a == b) {
+                return b;
+            } else if (b == TRUE) {
+                return a;
+            }
+        } else {
+            if (a == TRUE || b == TRUE) {
+                return TRUE;
+            } else if (a == FALSE || a == b) {
+                return b;
+            } else if (b == FALSE) {
+                return a;
+            }
+        }
+        if (op != NOT && a > b) {
+            int swap = a;
+            a = b;
+            b = swap;
+        }
+        int slot = (int) (((op * 31L + a) * 0x9E3779B97F4A7C15L + b)
+                >>> 46) & (CACHE_SIZE - 1);
+        if (cacheOp[slot] == op && cacheA[slot] == a && cacheB[slot] == b) {
+            return cacheResult[slot];
+        }
+        int v = Math.min(var[a], var[b]);
+        int a0 = var[a] == v ? low[a] : a;
+        int a1 = var[a] == v ? high[a] : a;
+        int b0 = var[b] == v ? low[b] : b;
+        int b1 = var[b] == v ? high[b] : b;
+        int result = mk(v, apply(op, a0, b0), apply(op, a1, b1));
+        cacheOp[slot] = op;
+        cacheA[slot] = a;
+        cacheB[slot] = b;
+        cacheResult[slot] = result;
+        return result;
+    }
+
+    // Returns the node for (v, lo, hi), creating it if needed
+    private int mk(int v, int lo, int hi) {
+        if (lo == hi) {
+            return lo;
+        }
+        int mask = unique.length - 1;
+        int slot = hash(v, lo, hi) & mask;
+        while (unique[slot] != 0) {
+            int node = unique[slot] - 1;
+            if (var[node] == v && low[node] == lo && high[node] == hi) {
+                return node;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size == maxNodes) {
+            throw new IllegalStateException("decision diagram too large");
+        }
+        if ((size & 1023) == 0) {
+            token.check();
+        }
+        if (size == var.length) {
+            var = Arrays.copyOf(var, 2 * size);
+            low = Arrays.copyOf(low, 2 * size);
+            high = Arrays.copyOf(high, 2 * size);
+        }
+        int node = size;
+        size = size + 1;
+        var[node] = v;
+        low[node] = lo;
+        high[node] = hi;
+        unique[slot] = node + 1;
+        if (2 * size > unique.length) {
+            rehash();
+        }
+        return node;
+    }
+
+    private void rehash() {
+        unique = new int[2 * unique.length];
+        int mask = unique.length - 1;
+        for (int node = 2; node < size; node++) {
+            int slot = hash(var[node], low[node], high[node]) & mask;
+            while (unique[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            unique[slot] = node + 1;
+        }
+    }
+
+    private static int hash(int v, int lo, int hi) {
+        long h = (v * 0x9E3779B97F4A7C15L + lo) * 0xC2B2AE3D27D4EB4FL + hi;
+        return (int) (h ^ (h >>> 29));
+    }
+}
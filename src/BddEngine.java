@@ -0,0 +1,51 @@
+import java.util.concurrent.CancellationException;
+
+import bool_exp.ASTNode;
+
+/*
+ * Builds the decision diagram of the expression; satisfiable exactly when
+ * the root is not the FALSE terminal, with a model read off any path to
+ * TRUE. Wins on expressions with a lot of structure but few distinct
+ * subfunctions, loses (by running out of nodes) on random clauses.
+ */
+public class BddEngine implements SatEngine {
+
+    private final ASTNode root;
+    private final VariableOrder order;
+
+    public BddEngine(ASTNode root, VariableOrder order) {
+        this.root = root;
+        this.order = order;
+    }
+
+    public String name() {
+        return "bdd";
+    }
+
+    public SolveResult solve(CancellationToken token) {
+        Bdd bdd;
+        try {
+            bdd = Bdd.of(root, order, token);
+        } catch (CancellationException e) {
+            return SolveResult.unknown(name());
+        } catch (IllegalStateException e) {
+            return SolveResult.unknown(name());
+        }
+        if (bdd.root() == Bdd.FALSE) {
+            return SolveResult.unsat(name());
+        }
+        // Follows the low branch unless it is a dead end; skipped
+        // variables are left false
+        boolean[] model = new boolean[order.size()];
+        int node = bdd.root();
+        while (node != Bdd.TRUE) {
+            if (bdd.low(node) != Bdd.FALSE) {
+                node = bdd.low(node);
+            } else {
+                model[bdd.var(node)] = true;
+                node = bdd.high(node);
+            }
+        }
+        return SolveResult.sat(model, name());
+    }
+}
@@ -0,0 +1,78 @@
+import java.math.BigInteger;
+import java.util.Random;
+
+/*
+ * Draws satisfying assignments uniformly at random from a Bdd.
+ *
+ * Every node gets the exact number of assignments to the variables from its
+ * own down to the last one that lead to TRUE, as a BigInteger so counts far
+ * beyond 2^64 are no problem. Children are always created before their
+ * parents, so one pass over the nodes in index order fills the counts in.
+ * A sample then walks from the root, taking each branch with probability
+ * proportional to the models below it and flipping a fair coin for every
+ * variable a branch skips, which takes time linear in the number of
+ * variables.
+ */
+public class BddSampler {
+
+    private final Bdd bdd;
+    private final BigInteger[] count;
+    private final Random random;
+
+    public BddSampler(Bdd bdd, Random random) {
+        this.bdd = bdd;
+        this.random = random;
+        count = new BigInteger[bdd.size()];
+        count[Bdd.FALSE] = BigInteger.ZERO;
+        count[Bdd.TRUE] = BigInteger.ONE;
+        for (int node = 2; node < count.length; node++) {
+            count[node] = weight(node, bdd.low(node))
+                    .add(weight(node, bdd.high(node)));
+        }
+    }
+
+    // Number of satisfying assignments of the whole expression
+    public BigInteger count() {
+        return count[bdd.root()].shiftLeft(bdd.var(bdd.root()));
+    }
+
+    // Models through the given child of a node, counting the variables the
+    // edge skips as free
+    private BigInteger weight(int node, int child) {
+        return count[child].shiftLeft(bdd.var(child) - bdd.var(node) - 1);
+    }
+
+    // Returns one satisfying assignment by variable id, each one equally
+    // likely; the expression must be satisfiable
+    public boolean[] sample() {
+        boolean[] model = new boolean[bdd.variables()];
+        int node = bdd.root();
+        fill(model, 0, bdd.var(node));
+        while (node != Bdd.TRUE) {
+            BigInteger low = weight(node, bdd.low(node));
+            BigInteger high = weight(node, bdd.high(node));
+            boolean value = below(low.add(high)).compareTo(low) >= 0;
+            int child = value ? bdd.high(node) : bdd.low(node);
+            model[bdd.var(node)] = value;
+            fill(model, bdd.var(node) + 1, bdd.var(child));
+            node = child;
+        }
+        return model;
+    }
+
+    // Gives the skipped variables [from, to) random values
+    private void fill(boolean[] model, int from, int to) {
+        for (int id = from; id < to; id++) {
+            model[id] = random.nextBoolean();
+        }
+    }
+
+    // A uniform number in [0, bound)
+    private BigInteger below(BigInteger bound) {
+        BigInteger r;
+        do {
+            r = new BigInteger(bound.bitLength(), random);
+        } while (r.compareTo(bound) >= 0);
+        return r;
+    }
+}
@@ -0,0 +1,100 @@
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import bool_exp.ASTNode;
+import bool_exp.BoolSatParser;
+
+// Junit testing of uniform sampling from decision diagrams
+public class BddSamplerTest {
+    // Packs a sample into an assignment index
+    private long bits(boolean[] model, VariableOrder order) {
+        long bits = 0;
+        for (int id = 0; id < model.length; id++) {
+            if (model[id]) {
+                bits = bits | (1L << order.shift(id));
+            }
+        }
+        return bits;
+    }
+
+    // Tests that every sample satisfies the expression and that the model
+    // count matches the truth table
+    @Test
+    public void testSamplesSatisfy() {
+        Random random = new Random(39);
+        for (int round = 0; round < 100; round++) {
+            StringBuilder expression = new StringBuilder("x0");
+            int vars = 1 + random.nextInt(10);
+            for (int i = 1; i < 3 * vars; i++) {
+                expression.append(random.nextBoolean() ? " || " : " && ")
+                        .append(random.nextBoolean() ? "!x" : "x")
+                        .append(random.nextInt(vars));
+            }
+            ASTNode root = BoolSatParser.parse(expression.toString());
+            VariableOrder order = VariableOrder.of(root);
+            TruthTable table = TruthTable.of(
+                    new InterpretedEvaluator(root, order), order);
+            long models = 0;
+            for (long bits = 0; bits < order.assignments(); bits++) {
+                models = models + (table.eval(bits) ? 1 : 0);
+            }
+            Bdd bdd = Bdd.of(root, order);
+            BddSampler sampler = new BddSampler(bdd, random);
+            Assert.assertEquals(BigInteger.valueOf(models), sampler.count());
+            if (models == 0) {
+                Assert.assertEquals(Bdd.FALSE, bdd.root());
+                continue;
+            }
+            for (int i = 0; i < 50; i++) {
+                Assert.assertTrue(table.eval(bits(sampler.sample(), order)));
+            }
+        }
+    }
+
+    // Tests that the same seed draws the same samples
+    @Test
+    public void testSeedIsDeterministic() {
+        ASTNode root = BoolSatParser.parse("(a || b || c) && (!a || d)");
+        VariableOrder order = VariableOrder.of(root);
+        Bdd bdd = Bdd.of(root, order);
+        BddSampler first = new BddSampler(bdd, new Random(7));
+        BddSampler second = new BddSampler(bdd, new Random(7));
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertArrayEquals(first.sample(), second.sample());
+        }
+    }
+
+    // Tests with a chi-square statistic that every model is drawn about
+    // equally often
+    @Test
+    public void testUniform() {
+        ASTNode root = BoolSatParser.parse(
+                "(a || b) && (c || !d) && !(a && e)");
+        VariableOrder order = VariableOrder.of(root);
+        TruthTable table = TruthTable.of(
+                new InterpretedEvaluator(root, order), order);
+        BddSampler sampler = new BddSampler(Bdd.of(root, order),
+                new Random(1234));
+        // a, b, c, d, e: 12 of the 32 assignments satisfy
+        Assert.assertEquals(BigInteger.valueOf(12), sampler.count());
+        int perModel = 2000;
+        long[] drawn = new long[(int) order.assignments()];
+        for (int i = 0; i < 12 * perModel; i++) {
+            drawn[(int) bits(sampler.sample(), order)]++;
+        }
+        double chiSquare = 0;
+        for (long bits = 0; bits < drawn.length; bits++) {
+            if (!table.eval(bits)) {
+                Assert.assertEquals(0, drawn[(int) bits]);
+                continue;
+            }
+            double diff = drawn[(int) bits] - perModel;
+            chiSquare = chiSquare + diff * diff / perModel;
+        }
+        // The 0.1% critical value for 11 degrees of freedom
+        Assert.assertTrue("chi-square " + chiSquare, chiSquare < 31.26);
+    }
+}
@@ -0,0 +1,123 @@
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Writes the listing in a compact binary form for other tools.
+ *
+ * Layout (big endian, strings as an int byte count followed by UTF-8):
+ *   "BSAT"            magic
+ *   byte              format version, currently 2
+ *   byte              0 = satisfying assignments, 1 = truth table (DEBUG)
+ *   int               number of variables n
+ *   n strings         variable names in sorted order
+ *   string            the expression
+ *   byte              1 if SAT, 0 if UNSAT
+ * followed by either
+ *   one (n + 7) / 8 byte big endian word per satisfying assignment, in
+ *   increasing order, until the end of the stream, or
+ *   a truth table of 2^n bits packed into longs, bit (i % 64) of long i / 64
+ *   being the value under assignment i.
+ *
+ * An assignment word holds variable 0 in its most significant used bit, as
+ * described by VariableOrder. Version 1 wrote strings in DataOutput UTF
+ * form, which cannot hold an expression of more than 65535 bytes.
+ */
+public class BinaryAssignmentWriter implements AssignmentWriter {
+
+    public static final int MAGIC = 0x42534154;
+    public static final int VERSION = 2;
+    public static final int LIST = 0, TRUTH_TABLE = 1;
+
+    private final DataOutputStream out;
+    private final VariableOrder order;
+    private final boolean debug;
+    private final int wordBytes;
+    // Truth table bits waiting to fill a long
+    private long word;
+    private int wordBits;
+    private long bytes = 0;
+
+    public BinaryAssignmentWriter(VariableOrder order, boolean debug,
+            OutputStream out) {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 20));
+        this.order = order;
+        this.debug = debug;
+        this.wordBytes = (order.size() + 7) / 8;
+    }
+
+    public void begin(String command, boolean sat) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(debug ? TRUTH_TABLE : LIST);
+        out.writeInt(order.size());
+        for (int id = 0; id < order.size(); id++) {
+            writeString(out, order.name(id));
+        }
+        writeString(out, command);
+        out.writeByte(sat ? 1 : 0);
+        bytes = out.size();
+    }
+
+    public void write(long bits, boolean value) throws IOException {
+        if (debug) {
+            if (value) {
+                word = word | (1L << wordBits);
+            }
+            wordBits = wordBits + 1;
+            if (wordBits == 64) {
+                out.writeLong(word);
+                bytes = bytes + 8;
+                word = 0;
+                wordBits = 0;
+            }
+        } else {
+            for (int i = wordBytes - 1; i >= 0; i--) {
+                out.writeByte((int) (bits >>> (8 * i)));
+            }
+            bytes = bytes + wordBytes;
+        }
+    }
+
+    public long bytes() {
+        return bytes;
+    }
+
+    // A truth table word still being filled is not written; callers flush
+    // at multiples of 64 assignments
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    public void finish() throws IOException {
+        if (wordBits > 0) {
+            out.writeLong(word);
+            bytes = bytes + 8;
+            word = 0;
+            wordBits = 0;
+        }
+        out.flush();
+    }
+
+    // Writes a string in the form of the header, with no limit on its length
+    public static void writeString(DataOutputStream out, String str)
+            throws IOException {
+        byte[] text = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(text.length);
+        out.write(text);
+    }
+
+    // Reads a string written by writeString
+    public static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Corrupt string length " + length);
+        }
+        byte[] text = new byte[length];
+        in.readFully(text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,119 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import bool_exp.BoolSatParser;
+
+// Junit testing of the binary listing format
+public class BinaryAssignmentWriterTest {
+    // Lists the expression in binary form
+    private byte[] list(String expression, boolean debug) throws Exception {
+        ExpressionIndex index = ExpressionIndex.of(
+                BoolSatParser.parse(expression));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryAssignmentWriter writer = new BinaryAssignmentWriter(
+                index.order(), debug, out);
+        PA4BoolSat.printIndexed(new InterpretedEvaluator(index),
+                index.order(), writer, debug, CancellationToken.NONE,
+                expression);
+        Assert.assertEquals(out.size(), writer.bytes());
+        return out.toByteArray();
+    }
+
+    // Reads the header back, checking it against the expression, and
+    // returns the stream positioned at the assignments
+    private DataInputStream readHeader(byte[] bytes, String expression,
+            boolean debug) throws Exception {
+        VariableOrder order = VariableOrder.of(BoolSatParser.parse(expression));
+        DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(bytes));
+        Assert.assertEquals(BinaryAssignmentWriter.MAGIC, in.readInt());
+        Assert.assertEquals(BinaryAssignmentWriter.VERSION, in.readByte());
+        Assert.assertEquals(debug ? BinaryAssignmentWriter.TRUTH_TABLE
+                : BinaryAssignmentWriter.LIST, in.readByte());
+        Assert.assertEquals(order.size(), in.readInt());
+        for (int id = 0; id < order.size(); id++) {
+            Assert.assertEquals(order.name(id),
+                    BinaryAssignmentWriter.readString(in));
+        }
+        Assert.assertEquals(expression, BinaryAssignmentWriter.readString(in));
+        return in;
+    }
+
+    // Tests that both forms read back to the truth table of the expression
+    @Test
+    public void testRoundTrip() throws Exception {
+        Random random = new Random(27);
+        for (int round = 0; round < 50; round++) {
+            StringBuilder expression = new StringBuilder("x0");
+            int vars = 1 + random.nextInt(12);
+            for (int i = 1; i < 3 * vars; i++) {
+                expression.append(random.nextBoolean() ? " || " : " && ")
+                        .append(random.nextBoolean() ? "!x" : "x")
+                        .append(random.nextInt(vars));
+            }
+            String command = expression.toString();
+            ExpressionIndex index = ExpressionIndex.of(
+                    BoolSatParser.parse(command));
+            VariableOrder order = index.order();
+            TruthTable table = TruthTable.of(new InterpretedEvaluator(index),
+                    order);
+            ArrayList<Long> expected = new ArrayList<Long>();
+            for (long bits = 0; bits < order.assignments(); bits++) {
+                if (table.eval(bits)) {
+                    expected.add(bits);
+                }
+            }
+
+            DataInputStream in = readHeader(list(command, false), command,
+                    false);
+            Assert.assertEquals(expected.isEmpty() ? 0 : 1, in.readByte());
+            int wordBytes = (order.size() + 7) / 8;
+            ArrayList<Long> actual = new ArrayList<Long>();
+            while (in.available() > 0) {
+                long bits = 0;
+                for (int i = 0; i < wordBytes; i++) {
+                    bits = (bits << 8) | in.readUnsignedByte();
+                }
+                actual.add(bits);
+            }
+            Assert.assertEquals(expected, actual);
+
+            in = readHeader(list(command, true), command, true);
+            Assert.assertEquals(expected.isEmpty() ? 0 : 1, in.readByte());
+            Assert.assertEquals((order.assignments() + 63) / 64 * 8,
+                    in.available());
+            for (long bits = 0; bits < order.assignments(); bits += 64) {
+                long word = in.readLong();
+                for (int i = 0; i < 64 && bits + i < order.assignments();
+                        i++) {
+                    Assert.assertEquals(table.eval(bits + i),
+                            ((word >>> i) & 1L) != 0);
+                }
+            }
+        }
+    }
+
+    // Tests names and expressions longer than DataOutput UTF strings allow
+    @Test
+    public void testLongStrings() throws Exception {
+        StringBuilder name = new StringBuilder("v");
+        while (name.length() < 70000) {
+            name.append("long");
+        }
+        StringBuilder expression = new StringBuilder(name).append(" || w0");
+        for (int i = 1; i < 10000; i++) {
+            expression.append(" || w").append(i % 3);
+        }
+        String command = expression.toString();
+        DataInputStream in = readHeader(list(command, false), command, false);
+        Assert.assertEquals(1, in.readByte());
+        // 4 variables fit one byte per assignment, 15 of which satisfy
+        Assert.assertEquals(15, in.available());
+    }
+}
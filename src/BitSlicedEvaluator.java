@@ -0,0 +1,144 @@
+import bool_exp.ASTNode;
+
+/*
+ * Evaluates an expression over a whole block of consecutive assignments at
+ * once, one bit per assignment.
+ *
+ * A block is WIDTH longs, i.e. 512 assignments. Every variable becomes a
+ * block of bit patterns (the low six index bits give the fixed patterns
+ * 0xAAAA..., 0xCCCC..., the next three select whole words, the rest are all
+ * ones or all zeros for the block), and the expression is run over those
+ * blocks as a flat postorder program of &, | and ~ on long arrays. Each
+ * operator is a short fixed-length loop over WIDTH longs, which HotSpot's
+ * superword pass turns into 256 or 512-bit vector instructions where the
+ * CPU has them, with no module or flag needed to get there.
+ *
+ * As an Evaluator it answers single assignments from the block it last
+ * computed, so sequential callers pay for one block per 512 assignments.
+ * Instances keep that block as state and must not be shared between threads.
+ */
+public class BitSlicedEvaluator implements Evaluator {
+
+    // Longs per block and assignments per block
+    public static final int WIDTH = 8;
+    public static final int BLOCK = WIDTH * 64;
+
+    // Index bits that select the word within a block
+    private static final int WORD_BITS = 3;
+
+    // Value of index bits 0 to 5 across the 64 bits of a word
+    private static final long[] LOW_PATTERNS = { 0xAAAAAAAAAAAAAAAAL,
+            0xCCCCCCCCCCCCCCCCL, 0xF0F0F0F0F0F0F0F0L, 0xFF00FF00FF00FF00L,
+            0xFFFF0000FFFF0000L, 0xFFFFFFFF00000000L };
+
+    // Instructions: the opcode in the low two bits, the variable id above
+    private static final int LOAD = 0, AND = 1, OR = 2, NOT = 3;
+
+    private final VariableOrder order;
+    private final int[] program;
+    private final long[][] inputs;
+    // Operand stack: references to blocks, and a scratch block per slot
+    private final long[][] stack;
+    private final long[][] scratch;
+    private final long[] block = new long[WIDTH];
+    private long blockBase = -1;
+
+    public BitSlicedEvaluator(ASTNode root, VariableOrder order) {
+        this(ExpressionIndex.of(root, order));
+    }
+
+    public BitSlicedEvaluator(ExpressionIndex index) {
+        this.order = index.order();
+        program = new int[index.size()];
+        for (int i = 0; i < program.length; i++) {
+            ASTNode node = index.node(i);
+            if (node.isAnd()) {
+                program[i] = AND;
+            } else if (node.isOr()) {
+                program[i] = OR;
+            } else if (node.isNot()) {
+                program[i] = NOT;
+            } else {
+                program[i] = LOAD | (index.variable(i) << 2);
+            }
+        }
+        int maxDepth = index.stackDepth();
+        stack = new long[maxDepth][];
+        scratch = new long[maxDepth][WIDTH];
+        inputs = new long[order.size()][WIDTH];
+        for (int id = 0; id < order.size(); id++) {
+            int shift = order.shift(id);
+            for (int w = 0; w < WIDTH; w++) {
+                if (shift < 6) {
+                    inputs[id][w] = LOW_PATTERNS[shift];
+                } else if (shift < 6 + WORD_BITS) {
+                    inputs[id][w] = ((w >>> (shift - 6)) & 1) != 0 ? -1L : 0;
+                }
+            }
+        }
+    }
+
+    // Evaluates the block of assignments starting at base, which must be a
+    // multiple of BLOCK, into out: bit j of out[w] is the value under
+    // assignment base + 64 * w + j
+    public void evalBlock(long base, long[] out) {
+        for (int id = 0; id < order.size(); id++) {
+            int shift = order.shift(id);
+            if (shift >= 6 + WORD_BITS) {
+                long fill = ((base >>> shift) & 1L) != 0 ? -1L : 0;
+                long[] input = inputs[id];
+                for (int w = 0; w < WIDTH; w++) {
+                    input[w] = fill;
+                }
+            }
+        }
+        int sp = 0;
+        for (int instruction : program) {
+            switch (instruction & 3) {
+            case LOAD:
+                stack[sp] = inputs[instruction >>> 2];
+                sp = sp + 1;
+                break;
+            case AND: {
+                long[] a = stack[sp - 2], b = stack[sp - 1];
+                long[] dst = scratch[sp - 2];
+                for (int w = 0; w < WIDTH; w++) {
+                    dst[w] = a[w] & b[w];
+                }
+                stack[sp - 2] = dst;
+                sp = sp - 1;
+                break;
+            }
+            case OR: {
+                long[] a = stack[sp - 2], b = stack[sp - 1];
+                long[] dst = scratch[sp - 2];
+                for (int w = 0; w < WIDTH; w++) {
+                    dst[w] = a[w] | b[w];
+                }
+                stack[sp - 2] = dst;
+                sp = sp - 1;
+                break;
+            }
+            default: {
+                long[] a = stack[sp - 1];
+                long[] dst = scratch[sp - 1];
+                for (int w = 0; w < WIDTH; w++) {
+                    dst[w] = ~a[w];
+                }
+                stack[sp - 1] = dst;
+                break;
+            }
+            }
+        }
+        System.arraycopy(stack[0], 0, out, 0, WIDTH);
+    }
+
+    public boolean eval(long bits) {
+        long base = bits & -BLOCK;
+        if (base != blockBase) {
+            evalBlock(base, block);
+            blockBase = base;
+        }
+        return ((block[(int) (bits >>> 6) & (WIDTH - 1)] >>> bits) & 1L) != 0;
+    }
+}
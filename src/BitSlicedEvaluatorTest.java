@@ -0,0 +1,21 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import bool_exp.ASTNode;
+import bool_exp.BoolSatParser;
+
+// Junit testing of the bit-sliced evaluator
+public class BitSlicedEvaluatorTest {
+    // Tests the bit-sliced evaluator across several blocks
+    @Test
+    public void testBitSliced() {
+        ASTNode root = BoolSatParser.parse("(a || !k) && (!b || c && !j) "
+                + "|| d && e && !(f || g) || h && i");
+        VariableOrder order = VariableOrder.of(root);
+        Evaluator sliced = new BitSlicedEvaluator(root, order);
+        Evaluator interpreted = new InterpretedEvaluator(root, order);
+        for (long bits = 0; bits < order.assignments(); bits++) {
+            Assert.assertEquals(interpreted.eval(bits), sliced.eval(bits));
+        }
+    }
+}
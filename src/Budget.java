@@ -0,0 +1,105 @@
+import java.io.IOException;
+
+/*
+ * Limits on a single run: wall clock time, assignments listed and bytes of
+ * listing written, from --timeout, --max-assignments and --max-output-bytes.
+ *
+ * A Budget is a CancellationToken, so the engines that already poll a token
+ * stop when time runs out without knowing about budgets at all. Reading the
+ * clock costs far more than one evaluation, so the enumeration loops only
+ * poll every CHECK_INTERVAL assignments; the assignment and byte limits are
+ * plain counter comparisons made by BudgetedWriter on every write. Once a
+ * limit is hit the token stays cancelled and reason() says which one.
+ */
+public class Budget extends CancellationToken {
+
+    // Output written under a budget, which is finished off when the budget
+    // stops the run
+    public interface Listing {
+        // Whether the header went out, so the status of the listing is known
+        boolean began();
+
+        // Writes out what fits of a listing stopped by the budget
+        void close() throws IOException;
+    }
+
+    // Assignments between two polls of the token in enumeration loops
+    public static final int CHECK_INTERVAL = 1 << 12;
+
+    // Value of a limit that was not given
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    private final long deadline;
+    private final long maxAssignments;
+    private final long maxBytes;
+    private volatile String reason;
+    // The listing being written under this budget, if any
+    private Listing listing;
+
+    // Limits of zero or less are taken as no limit
+    public Budget(long timeoutMillis, long maxAssignments, long maxBytes) {
+        this.deadline = timeoutMillis > 0
+                ? System.nanoTime() + timeoutMillis * 1000000L : UNLIMITED;
+        this.maxAssignments = maxAssignments > 0 ? maxAssignments : UNLIMITED;
+        this.maxBytes = maxBytes > 0 ? maxBytes : UNLIMITED;
+    }
+
+    // The limits given on the command line; the clock starts now
+    public static Budget of(Options options) {
+        return new Budget(options.getLong("timeout", 0),
+                options.getLong("max-assignments", 0),
+                options.getLong("max-output-bytes", 0));
+    }
+
+    // Whether any limit was given at all
+    public boolean isLimited() {
+        return deadline != UNLIMITED || maxAssignments != UNLIMITED
+                || maxBytes != UNLIMITED;
+    }
+
+    public long maxAssignments() {
+        return maxAssignments;
+    }
+
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    // Also reads the clock, so callers in hot loops should poll sparingly
+    public boolean isCancelled() {
+        if (reason != null) {
+            return true;
+        }
+        if (super.isCancelled()) {
+            exceed("cancelled");
+            return true;
+        }
+        if (deadline != UNLIMITED && System.nanoTime() - deadline >= 0) {
+            exceed("timeout");
+            return true;
+        }
+        return false;
+    }
+
+    // Cancels the run, remembering the first limit that was hit
+    public synchronized void exceed(String why) {
+        if (reason == null) {
+            reason = why;
+        }
+        cancel();
+    }
+
+    // Which limit stopped the run, or null while it is still going
+    public String reason() {
+        return reason;
+    }
+
+    void attach(Listing output) {
+        listing = output;
+    }
+
+    // The listing written under this budget, or null when there is none
+    public Listing listing() {
+        return listing;
+    }
+}
@@ -0,0 +1,120 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/*
+ * Line oriented output held to a Budget, for the listings that are not
+ * written through an AssignmentWriter: cubes, samples and --eval results.
+ *
+ * Every line after the header counts as one assignment towards
+ * --max-assignments, and every CHECK_INTERVAL lines the budget is polled
+ * for its timeout. A line is only written when all of it fits within
+ * --max-output-bytes, so the output always ends on a whole line; once a
+ * limit is hit the write throws a CancellationException instead.
+ */
+public class BudgetedLines implements Budget.Listing {
+
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    private final OutputStream out;
+    private final Budget budget;
+    private long bytes = 0;
+    private long lines = 0;
+    private boolean began = false;
+
+    public BudgetedLines(OutputStream out, Budget budget) {
+        this.out = new BufferedOutputStream(out, 1 << 20);
+        this.budget = budget;
+        budget.attach(this);
+    }
+
+    // Writes the input line and the status line
+    public void begin(String command, String status) throws IOException {
+        begin(command + "\n" + status);
+    }
+
+    // Writes the input line alone, for output without a status
+    public void begin(String command) throws IOException {
+        budget.check();
+        put("input: " + command + "\n");
+        began = true;
+    }
+
+    // Writes one line of the listing, without its line break
+    public void write(String line) throws IOException {
+        lines = lines + 1;
+        if (lines > budget.maxAssignments()) {
+            budget.exceed("max-assignments");
+        }
+        if ((lines & (Budget.CHECK_INTERVAL - 1)) == 0
+                || lines > budget.maxAssignments()) {
+            budget.check();
+        }
+        put(line + "\n");
+    }
+
+    // Writes the first length bytes of block, which hold whole lines that
+    // each count as one assignment. The budget is polled once per block, and
+    // of a block that does not fit only the lines that do are written.
+    public void write(byte[] block, int length) throws IOException {
+        budget.check();
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (block[i] == '\n') {
+                count = count + 1;
+            }
+        }
+        if (count <= budget.maxAssignments() - lines
+                && length <= budget.maxBytes() - bytes) {
+            lines = lines + count;
+            bytes = bytes + length;
+            out.write(block, 0, length);
+            return;
+        }
+        int cut = 0;
+        String reason = null;
+        for (int i = 0; i < length && reason == null; i++) {
+            if (block[i] != '\n') {
+                continue;
+            }
+            if (lines == budget.maxAssignments()) {
+                reason = "max-assignments";
+            } else if (i + 1 - cut > budget.maxBytes() - bytes) {
+                reason = "max-output-bytes";
+            } else {
+                lines = lines + 1;
+                bytes = bytes + i + 1 - cut;
+                cut = i + 1;
+            }
+        }
+        out.write(block, 0, cut);
+        if (reason != null) {
+            budget.exceed(reason);
+            budget.check();
+        }
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    public boolean began() {
+        return began;
+    }
+
+    public void close() throws IOException {
+        out.flush();
+    }
+
+    // Writes the text if it fits, or stops at the end of the previous line
+    private void put(String text) throws IOException {
+        byte[] encoded = text.getBytes(CHARSET);
+        if (encoded.length > budget.maxBytes() - bytes) {
+            budget.exceed("max-output-bytes");
+            budget.check();
+        }
+        bytes = bytes + encoded.length;
+        out.write(encoded);
+    }
+}
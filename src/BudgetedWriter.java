@@ -0,0 +1,112 @@
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/*
+ * An AssignmentWriter that enforces a Budget on the listing passing through.
+ *
+ * Every write counts towards --max-assignments, and every CHECK_INTERVAL
+ * writes the budget is polled for its timeout. Once a limit is hit the
+ * write throws a CancellationException and the listing stops there.
+ *
+ * Bytes are counted by the wrapped writer, which sees them before its own
+ * buffering. The stream beneath it is a Cut, so bytes only reach the output
+ * while they lie within the limit; when a write takes the count past it,
+ * the cut is moved back to where the previous assignment ended, and the
+ * output always ends on a whole line or record.
+ */
+public class BudgetedWriter implements AssignmentWriter, Budget.Listing {
+
+    private final AssignmentWriter writer;
+    private final Budget budget;
+    private final Cut cut;
+    private long written = 0;
+    private boolean began = false;
+    private boolean finished = false;
+
+    // The writer must write to the given cut
+    public BudgetedWriter(AssignmentWriter writer, Budget budget, Cut cut) {
+        this.writer = writer;
+        this.budget = budget;
+        this.cut = cut;
+        budget.attach(this);
+    }
+
+    public void begin(String command, boolean sat) throws IOException {
+        budget.check();
+        writer.begin(command, sat);
+        charge(0);
+        began = true;
+    }
+
+    public void write(long bits, boolean value) throws IOException {
+        written = written + 1;
+        if (written > budget.maxAssignments()) {
+            budget.exceed("max-assignments");
+        }
+        if ((written & (Budget.CHECK_INTERVAL - 1)) == 0
+                || written > budget.maxAssignments()) {
+            budget.check();
+        }
+        long before = writer.bytes();
+        writer.write(bits, value);
+        charge(before);
+    }
+
+    public long bytes() {
+        return writer.bytes();
+    }
+
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    public void finish() throws IOException {
+        finished = true;
+        writer.finish();
+    }
+
+    public boolean began() {
+        return began;
+    }
+
+    public void close() throws IOException {
+        if (!finished) {
+            finish();
+        }
+    }
+
+    // Stops at the end of the previous write, given as a byte count, once
+    // the output is over its limit
+    private void charge(long boundary) {
+        if (writer.bytes() > budget.maxBytes()) {
+            cut.limit = boundary;
+            budget.exceed("max-output-bytes");
+            budget.check();
+        }
+    }
+
+    // Passes bytes on up to a limit and drops the rest
+    public static class Cut extends FilterOutputStream {
+        private long limit;
+        private long passed = 0;
+
+        public Cut(OutputStream out, long limit) {
+            super(out);
+            this.limit = limit;
+        }
+
+        public void write(int b) throws IOException {
+            if (passed < limit) {
+                out.write(b);
+            }
+            passed = passed + 1;
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException {
+            long room = Math.max(0, Math.min(len, limit - passed));
+            out.write(b, off, (int) room);
+            passed = passed + len;
+        }
+    }
+}
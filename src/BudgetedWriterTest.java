@@ -0,0 +1,53 @@
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+// Junit testing of the limits BudgetedWriter puts on a listing
+public class BudgetedWriterTest {
+    // Writes every assignment of three variables until the budget stops it
+    // and returns what reached the output
+    private String list(Budget budget) throws Exception {
+        VariableOrder order = new VariableOrder(
+                new ArrayList<String>(Arrays.asList("a", "b", "c")));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BudgetedWriter.Cut cut = new BudgetedWriter.Cut(bytes,
+                budget.maxBytes());
+        BudgetedWriter writer = new BudgetedWriter(
+                new TextAssignmentWriter(order, false, cut), budget, cut);
+        try {
+            writer.begin("a || b || c", true);
+            for (long bits = 0; bits < order.assignments(); bits++) {
+                writer.write(bits, true);
+            }
+            writer.finish();
+        } catch (CancellationException e) {
+            writer.close();
+        }
+        return bytes.toString();
+    }
+
+    // Tests that the listing stops after the allowed number of assignments
+    @Test
+    public void testMaxAssignments() throws Exception {
+        Budget budget = new Budget(0, 2, 0);
+        String out = list(budget);
+        Assert.assertEquals("input: a || b || c\nSAT\n"
+                + "a: false, b: false, c: false\n"
+                + "a: false, b: false, c: true\n", out);
+        Assert.assertEquals("max-assignments", budget.reason());
+    }
+
+    // Tests that the output ends on the last whole line within the limit
+    @Test
+    public void testMaxOutputBytes() throws Exception {
+        Budget budget = new Budget(0, 0, 60);
+        String out = list(budget);
+        Assert.assertEquals("input: a || b || c\nSAT\n"
+                + "a: false, b: false, c: false\n", out);
+        Assert.assertEquals("max-output-bytes", budget.reason());
+    }
+}
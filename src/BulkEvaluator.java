@@ -0,0 +1,306 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Evaluates one expression against a stream of given assignments instead
+ * of enumerating all of them, writing "true" or "false" per row in input
+ * order.
+ *
+ * Two input forms are accepted, told apart by their first bytes:
+ *   CSV: a header row of variable names, then one row per assignment with
+ *   1/0 or true/false in each column. Columns for names that are not in
+ *   the expression are ignored; every expression variable needs a column.
+ *   Binary: the list layout of BinaryAssignmentWriter, one packed word per
+ *   row, with the columns given by the names in its header.
+ *
+ * The input is read in chunks cut at row boundaries. Parsing, evaluation
+ * and rendering of the results happen on a pool of worker threads, one
+ * chunk per task, and finished chunks are written out in the order they
+ * were read. Only a few chunks are in flight at once, so memory stays flat
+ * however long the input is. The results go out through BudgetedLines, so
+ * the budget is polled once per chunk and every result line counts as one
+ * assignment towards its limits.
+ */
+public class BulkEvaluator {
+
+    // Bytes of input handed to a single task
+    public static final int CHUNK = 1 << 20;
+
+    private static final byte[] TRUE = "true\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSE = "false\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final Evaluator evaluator;
+    private final VariableOrder order;
+    private final int threads;
+    // Bit of the assignment each input column sets, 0 for ignored columns
+    private long[] columnBits;
+    private int wordBytes;
+    private long rows = 0;
+
+    // The evaluator is shared by every worker, so it must be thread safe
+    public BulkEvaluator(Evaluator evaluator, VariableOrder order,
+            int threads) {
+        this.evaluator = evaluator;
+        this.order = order;
+        this.threads = threads;
+    }
+
+    // Rows evaluated by the last call to run
+    public long rows() {
+        return rows;
+    }
+
+    // Evaluates every row of the input, writing one result line per row
+    // after an "input:" line naming the expression
+    public void run(InputStream raw, OutputStream out, String command)
+            throws IOException {
+        run(raw, out, new Budget(0, 0, 0), command);
+    }
+
+    // Evaluates the rows as above, stopping with a CancellationException
+    // when the budget runs out
+    public void run(InputStream raw, OutputStream output, Budget budget,
+            String command) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(raw, CHUNK);
+        BudgetedLines out = new BudgetedLines(output, budget);
+        out.begin(command);
+        in.mark(4);
+        byte[] magic = new byte[4];
+        int got = readFully(in, magic, 0, 4);
+        in.reset();
+        boolean binary = got == 4 && ((magic[0] & 0xff) << 24
+                | (magic[1] & 0xff) << 16 | (magic[2] & 0xff) << 8
+                | (magic[3] & 0xff)) == BinaryAssignmentWriter.MAGIC;
+        if (binary) {
+            readBinaryHeader(new DataInputStream(in));
+        } else {
+            readCsvHeader(in);
+        }
+        rows = 0;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>>();
+        try {
+            byte[] carry = new byte[0];
+            while (true) {
+                byte[] chunk = new byte[carry.length + CHUNK];
+                System.arraycopy(carry, 0, chunk, 0, carry.length);
+                budget.check();
+                int length = carry.length
+                        + readFully(in, chunk, carry.length, CHUNK);
+                boolean last = length < chunk.length;
+                int cut = last ? length : rowBoundary(chunk, length, binary);
+                carry = Arrays.copyOfRange(chunk, cut, length);
+                final byte[] data = chunk;
+                final int end = cut;
+                pending.add(pool.submit(() -> binary
+                        ? evalBinary(data, end) : evalCsv(data, end)));
+                if (pending.size() >= 2 * threads) {
+                    byte[] results = pending.remove().get();
+                    out.write(results, results.length);
+                }
+                if (last) {
+                    break;
+                }
+            }
+            while (!pending.isEmpty()) {
+                byte[] results = pending.remove().get();
+                out.write(results, results.length);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        out.flush();
+    }
+
+    // Where the last complete row of a full chunk ends
+    private int rowBoundary(byte[] chunk, int length, boolean binary)
+            throws IOException {
+        if (binary) {
+            return length - length % wordBytes;
+        }
+        int cut = length;
+        while (cut > 0 && chunk[cut - 1] != '\n') {
+            cut = cut - 1;
+        }
+        if (cut == 0) {
+            throw new IOException("Row longer than " + CHUNK + " bytes");
+        }
+        return cut;
+    }
+
+    // Maps the names of a CSV header row to assignment bits
+    private void readCsvHeader(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c = in.read();
+        while (c != -1 && c != '\n') {
+            line.append((char) c);
+            c = in.read();
+        }
+        String[] names = line.toString().trim().split(",");
+        for (int i = 0; i < names.length; i++) {
+            names[i] = names[i].trim();
+        }
+        mapColumns(names);
+    }
+
+    // Maps the names of a BinaryAssignmentWriter header to assignment bits
+    private void readBinaryHeader(DataInputStream in) throws IOException {
+        in.readInt();
+        if (in.readByte() != BinaryAssignmentWriter.VERSION
+                || in.readByte() != BinaryAssignmentWriter.LIST) {
+            throw new IOException("Unsupported binary input");
+        }
+        String[] names = new String[in.readInt()];
+        if (names.length > 64) {
+            throw new IOException("Too many columns in binary input");
+        }
+        for (int i = 0; i < names.length; i++) {
+            names[i] = BinaryAssignmentWriter.readString(in);
+        }
+        BinaryAssignmentWriter.readString(in);
+        in.readByte();
+        wordBytes = Math.max(1, (names.length + 7) / 8);
+        mapColumns(names);
+    }
+
+    private void mapColumns(String[] names) throws IOException {
+        columnBits = new long[names.length];
+        boolean[] covered = new boolean[order.size()];
+        for (int i = 0; i < names.length; i++) {
+            int id = order.id(names[i]);
+            if (id >= 0) {
+                columnBits[i] = 1L << order.shift(id);
+                covered[id] = true;
+            }
+        }
+        for (int id = 0; id < covered.length; id++) {
+            if (!covered[id]) {
+                throw new IOException("No column for " + order.name(id));
+            }
+        }
+    }
+
+    // Parses and evaluates the CSV rows in data[0, end)
+    private byte[] evalCsv(byte[] data, int end) throws IOException {
+        ResultBuffer results = new ResultBuffer(end / (2 * columnBits.length));
+        int pos = 0;
+        while (pos < end) {
+            long bits = 0;
+            int column = 0;
+            boolean blank = true;
+            while (pos < end && data[pos] != '\n') {
+                byte b = data[pos];
+                if (b == ',') {
+                    column = column + 1;
+                } else if (b == '1' || b == 't' || b == 'T') {
+                    // Only the first character of a field decides it
+                    if (column < columnBits.length
+                            && (pos == 0 || data[pos - 1] == ','
+                            || data[pos - 1] == '\n' || data[pos - 1] == ' ')) {
+                        bits = bits | columnBits[column];
+                    }
+                    blank = false;
+                } else if (b != ' ' && b != '\r') {
+                    blank = false;
+                }
+                pos = pos + 1;
+            }
+            pos = pos + 1;
+            if (blank && column == 0) {
+                continue;
+            }
+            if (column + 1 != columnBits.length) {
+                throw new IOException("Row with " + (column + 1)
+                        + " columns, expected " + columnBits.length);
+            }
+            results.add(evaluator.eval(bits));
+        }
+        synchronized (this) {
+            rows = rows + results.count;
+        }
+        return results.bytes();
+    }
+
+    // Evaluates the packed binary rows in data[0, end)
+    private byte[] evalBinary(byte[] data, int end) throws IOException {
+        if (end % wordBytes != 0) {
+            throw new IOException("Truncated binary row");
+        }
+        int columns = columnBits.length;
+        ResultBuffer results = new ResultBuffer(end / wordBytes);
+        for (int pos = 0; pos < end; pos += wordBytes) {
+            long word = 0;
+            for (int i = 0; i < wordBytes; i++) {
+                word = (word << 8) | (data[pos + i] & 0xff);
+            }
+            long bits = 0;
+            for (int i = 0; i < columns; i++) {
+                if ((word >>> (columns - 1 - i) & 1) != 0) {
+                    bits = bits | columnBits[i];
+                }
+            }
+            results.add(evaluator.eval(bits));
+        }
+        synchronized (this) {
+            rows = rows + results.count;
+        }
+        return results.bytes();
+    }
+
+    // Reads until the buffer range is full or the stream ends
+    private static int readFully(InputStream in, byte[] buf, int off, int len)
+            throws IOException {
+        int total = 0;
+        while (total < len) {
+            int n = in.read(buf, off + total, len - total);
+            if (n < 0) {
+                break;
+            }
+            total = total + n;
+        }
+        return total;
+    }
+
+    // The rendered result lines of one chunk
+    private static class ResultBuffer {
+        byte[] bytes;
+        int size = 0;
+        long count = 0;
+
+        ResultBuffer(int rows) {
+            bytes = new byte[Math.max(16, rows * FALSE.length)];
+        }
+
+        void add(boolean value) {
+            byte[] line = value ? TRUE : FALSE;
+            if (size + line.length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, 2 * bytes.length + line.length);
+            }
+            System.arraycopy(line, 0, bytes, size, line.length);
+            size = size + line.length;
+            count = count + 1;
+        }
+
+        byte[] bytes() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+}
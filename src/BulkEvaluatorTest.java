@@ -0,0 +1,136 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import bool_exp.BoolSatParser;
+
+// Junit testing of --eval against the evaluator it runs in bulk
+public class BulkEvaluatorTest {
+    private static final String EXPRESSION = "(a || !b) && (c || d || !e) "
+            + "&& !(f && g) || (h && !a) || (i && j && !k)";
+
+    // The expected output: the input line and one result per assignment
+    private String expected(Evaluator evaluator, ArrayList<Long> rows) {
+        StringBuilder str = new StringBuilder("input: " + EXPRESSION + "\n");
+        for (long bits : rows) {
+            str.append(evaluator.eval(bits)).append('\n');
+        }
+        return str.toString();
+    }
+
+    // Runs --eval over the input with a few threads
+    private String eval(Evaluator evaluator, VariableOrder order,
+            byte[] input, long rows) throws Exception {
+        BulkEvaluator bulk = new BulkEvaluator(evaluator, order, 3);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bulk.run(new ByteArrayInputStream(input), out, EXPRESSION);
+        Assert.assertEquals(rows, bulk.rows());
+        return out.toString();
+    }
+
+    // Tests CSV input spanning several chunks, with the columns shuffled,
+    // an extra column and both spellings of the values
+    @Test
+    public void testCsv() throws Exception {
+        ExpressionIndex index = ExpressionIndex.of(
+                BoolSatParser.parse(EXPRESSION));
+        VariableOrder order = index.order();
+        InterpretedEvaluator evaluator = new InterpretedEvaluator(index);
+        Random random = new Random(35);
+        ArrayList<String> columns = new ArrayList<String>();
+        for (int id = 0; id < order.size(); id++) {
+            columns.add(order.name(id));
+        }
+        columns.add("unused");
+        Collections.shuffle(columns, random);
+        StringBuilder csv = new StringBuilder(String.join(", ", columns));
+        csv.append('\n');
+        ArrayList<Long> rows = new ArrayList<Long>();
+        while (csv.length() < 3 * BulkEvaluator.CHUNK) {
+            long bits = 0;
+            for (int i = 0; i < columns.size(); i++) {
+                boolean value = random.nextBoolean();
+                int id = order.id(columns.get(i));
+                if (value && id >= 0) {
+                    bits = bits | (1L << order.shift(id));
+                }
+                csv.append(i > 0 ? "," : "").append(random.nextBoolean()
+                        ? (value ? "1" : "0") : String.valueOf(value));
+            }
+            csv.append('\n');
+            rows.add(bits);
+        }
+        Assert.assertEquals(expected(evaluator, rows), eval(evaluator, order,
+                csv.toString().getBytes(), rows.size()));
+    }
+
+    // Tests that the results stop on a whole line at the limits of the
+    // budget
+    @Test
+    public void testBudget() throws Exception {
+        ExpressionIndex index = ExpressionIndex.of(
+                BoolSatParser.parse(EXPRESSION));
+        VariableOrder order = index.order();
+        StringBuilder csv = new StringBuilder();
+        for (int id = 0; id < order.size(); id++) {
+            csv.append(id > 0 ? "," : "").append(order.name(id));
+        }
+        csv.append('\n');
+        for (long bits = 0; bits < order.assignments(); bits++) {
+            for (int id = 0; id < order.size(); id++) {
+                csv.append(id > 0 ? "," : "")
+                        .append((bits >>> order.shift(id)) & 1);
+            }
+            csv.append('\n');
+        }
+        for (Budget budget : new Budget[] { new Budget(0, 100, 0),
+                new Budget(0, 0, 1000) }) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try {
+                new BulkEvaluator(new InterpretedEvaluator(index), order, 2)
+                        .run(new ByteArrayInputStream(csv.toString()
+                                .getBytes()), out, budget, EXPRESSION);
+                Assert.fail("ran past the budget");
+            } catch (CancellationException e) {
+                budget.listing().close();
+            }
+            String[] lines = out.toString().split("\n", -1);
+            Assert.assertEquals("", lines[lines.length - 1]);
+            if (budget.reason().equals("max-assignments")) {
+                Assert.assertEquals(102, lines.length);
+            } else {
+                Assert.assertEquals("max-output-bytes", budget.reason());
+                Assert.assertTrue(out.size() <= 1000 && out.size() > 990);
+            }
+        }
+    }
+
+    // Tests binary input in the form BinaryAssignmentWriter lists
+    @Test
+    public void testBinary() throws Exception {
+        ExpressionIndex index = ExpressionIndex.of(
+                BoolSatParser.parse(EXPRESSION));
+        VariableOrder order = index.order();
+        Evaluator evaluator = PA4BoolSat.createEvaluator(index);
+        Random random = new Random(350);
+        ByteArrayOutputStream input = new ByteArrayOutputStream();
+        BinaryAssignmentWriter writer = new BinaryAssignmentWriter(order,
+                false, input);
+        writer.begin("rows", true);
+        ArrayList<Long> rows = new ArrayList<Long>();
+        for (int i = 0; i < 1500000; i++) {
+            long bits = random.nextLong() & (order.assignments() - 1);
+            writer.write(bits, true);
+            rows.add(bits);
+        }
+        writer.finish();
+        Assert.assertEquals(expected(evaluator, rows),
+                eval(evaluator, order, input.toByteArray(), rows.size()));
+    }
+}
@@ -0,0 +1,39 @@
+import java.util.concurrent.CancellationException;
+
+/*
+ * Cooperative cancellation shared between a caller and the engines working
+ * for it. Engines poll the token at points that are cheap to check and stop
+ * with a CancellationException once it is cancelled. A token created with a
+ * parent also counts as cancelled when its parent is.
+ */
+public class CancellationToken {
+
+    // A token that is never cancelled
+    public static final CancellationToken NONE = new CancellationToken();
+
+    private final CancellationToken parent;
+    private volatile boolean cancelled = false;
+
+    public CancellationToken() {
+        this(null);
+    }
+
+    public CancellationToken(CancellationToken parent) {
+        this.parent = parent;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled || (parent != null && parent.isCancelled());
+    }
+
+    // Throws a CancellationException if the token has been cancelled
+    public void check() {
+        if (isCancelled()) {
+            throw new CancellationException();
+        }
+    }
+}
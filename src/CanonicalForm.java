@@ -0,0 +1,76 @@
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import bool_exp.ASTNode;
+
+/*
+ * A canonical text form of an expression, used to recognize resubmissions.
+ *
+ * Chains of the same operator are flattened and their operands sorted, so
+ * parentheses and operand order in && and || no longer matter, and double
+ * negations are dropped. Identifiers are replaced by their rank in the sorted
+ * variable order ("#0", "#1", ...). Renaming by rank keeps the assignment
+ * index order unchanged, so a truth table computed for one expression is
+ * valid for every expression with the same canonical form.
+ */
+public class CanonicalForm {
+
+    // Returns the canonical text of an expression
+    public static String of(ASTNode root, VariableOrder order) {
+        return canonical(root, order);
+    }
+
+    // Returns the SHA-256 of the canonical text in hex
+    public static String hash(ASTNode root, VariableOrder order) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] sum = digest.digest(
+                    of(root, order).getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : sum) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String canonical(ASTNode node, VariableOrder order) {
+        if (node.isNot()) {
+            if (node.child1.isNot()) {
+                return canonical(node.child1.child1, order);
+            }
+            return "!" + canonical(node.child1, order);
+        } else if (node.isId()) {
+            return "#" + order.id(node.getId());
+        }
+        // Gathers the operands of the whole chain of this operator without
+        // recursing down the chain itself
+        ArrayList<String> operands = new ArrayList<String>();
+        ArrayDeque<ASTNode> pending = new ArrayDeque<ASTNode>();
+        pending.push(node);
+        while (!pending.isEmpty()) {
+            ASTNode cur = pending.pop();
+            if (cur.isAnd() == node.isAnd() && cur.isOr() == node.isOr()) {
+                pending.push(cur.child1);
+                pending.push(cur.child2);
+            } else {
+                operands.add(canonical(cur, order));
+            }
+        }
+        Collections.sort(operands);
+        StringBuilder str = new StringBuilder(node.isAnd() ? "&(" : "|(");
+        for (int i = 0; i < operands.size(); i++) {
+            if (i > 0) {
+                str.append(",");
+            }
+            str.append(operands.get(i));
+        }
+        return str.append(")").toString();
+    }
+}
@@ -0,0 +1,53 @@
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
+import bool_exp.ASTNode;
+
+/*
+ * Clause learning search over the Tseitin clauses of the expression, after
+ * CnfPreprocessor has simplified them. The seed varies the initial
+ * branching order and phases, so several of these can race each other in a
+ * portfolio.
+ */
+public class CdclEngine implements SatEngine {
+
+    private final ASTNode root;
+    private final VariableOrder order;
+    private final long seed;
+
+    public CdclEngine(ASTNode root, VariableOrder order, long seed) {
+        this.root = root;
+        this.order = order;
+        this.seed = seed;
+    }
+
+    public String name() {
+        return "cdcl-" + seed;
+    }
+
+    public SolveResult solve(CancellationToken token) {
+        CnfPreprocessor pre = CnfPreprocessor.run(CnfFormula.of(root, order),
+                false);
+        if (pre.isUnsat()) {
+            return SolveResult.unsat(name());
+        }
+        CdclSolver solver = CdclSolver.of(pre.formula());
+        if (seed != 0) {
+            solver.setSeed(seed);
+        }
+        solver.setToken(token);
+        try {
+            if (!solver.solve()) {
+                return SolveResult.unsat(name());
+            }
+        } catch (CancellationException e) {
+            return SolveResult.unknown(name());
+        }
+        boolean[] values = new boolean[solver.variables()];
+        for (int v = 1; v <= values.length; v++) {
+            values[v - 1] = solver.modelValue(v);
+        }
+        return SolveResult.sat(Arrays.copyOf(pre.extend(values),
+                order.size()), name());
+    }
+}
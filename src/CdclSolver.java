@@ -0,0 +1,546 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+/*
+ * A conflict driven clause learning SAT solver.
+ *
+ * The usual ingredients, kept small: two watched literals per clause, first
+ * UIP learning, activity based branching with phase saving, Luby restarts,
+ * and periodic deletion of the learned clauses with the most distinct
+ * decision levels. Variables and literals are given to the public methods in
+ * DIMACS form (1-based, negative for negation); inside, variable v becomes
+ * v - 1 and its literals 2 * (v - 1) and 2 * (v - 1) + 1.
+ *
+ * The solver is incremental: clauses may be added between calls to solve,
+ * and solve takes assumption literals that hold only for that call. Learned
+ * clauses follow from the clauses alone, so they are kept from one call to
+ * the next.
+ *
+ * A CancellationToken, checked on every conflict and restart, stops a
+ * running solve with a CancellationException.
+ */
+public class CdclSolver {
+
+    // Value of a literal or variable
+    private static final byte UNDEF = 0, TRUE = 1, FALSE = -1;
+
+    // Conflicts before the first restart, scaled by the Luby sequence
+    private static final int RESTART_BASE = 100;
+
+    private static class Clause {
+        final int[] lits;
+        // Distinct decision levels when learned; low means more useful
+        int lbd;
+        boolean deleted;
+
+        Clause(int[] lits) {
+            this.lits = lits;
+        }
+    }
+
+    private int vars = 0;
+    private boolean ok = true;
+    private ArrayList<Clause> learnts = new ArrayList<Clause>();
+    private int clauseCount = 0;
+    private double maxLearnts = 0;
+    private ArrayList<ArrayList<Clause>> watches =
+            new ArrayList<ArrayList<Clause>>();
+
+    // Per variable state
+    private byte[] assigns = new byte[0];
+    private int[] level = new int[0];
+    private Clause[] reason = new Clause[0];
+    private boolean[] phase = new boolean[0];
+    private boolean[] seen = new boolean[0];
+    private double[] activity = new double[0];
+    private double activityInc = 1.0;
+
+    // Assignment trail and the start of each decision level in it
+    private int[] trail = new int[0];
+    private int trailSize = 0;
+    private int[] trailLimits = new int[0];
+    private int decisionLevel = 0;
+    private int propagated = 0;
+
+    // Branching order: a binary max-heap of variables on activity
+    private int[] heap = new int[0];
+    private int heapSize = 0;
+    private int[] heapIndex = new int[0];
+
+    private boolean[] model = new boolean[0];
+    private long conflicts = 0;
+    private CancellationToken token = CancellationToken.NONE;
+
+    // Creates a solver for the clauses of a formula
+    public static CdclSolver of(CnfFormula cnf) {
+        CdclSolver solver = new CdclSolver();
+        solver.ensureVariables(cnf.variables());
+        for (int[] clause : cnf.clauses()) {
+            solver.addClause(clause);
+        }
+        return solver;
+    }
+
+    // Number of variables the solver knows about
+    public int variables() {
+        return vars;
+    }
+
+    // Total conflicts met so far, over every call to solve
+    public long conflicts() {
+        return conflicts;
+    }
+
+    // Sets the token that stops solve early
+    public void setToken(CancellationToken token) {
+        this.token = token;
+    }
+
+    // Varies the initial branching order and phases, so that differently
+    // seeded solvers search different parts of the space first
+    public void setSeed(long seed) {
+        Random random = new Random(seed);
+        for (int v = 0; v < vars; v++) {
+            activity[v] = random.nextDouble() * 1e-5;
+            phase[v] = random.nextBoolean();
+            if (heapIndex[v] >= 0) {
+                heapUp(heapIndex[v]);
+            }
+        }
+    }
+
+    // Makes variables 1 to count known to the solver
+    public void ensureVariables(int count) {
+        if (count <= vars) {
+            return;
+        }
+        assigns = Arrays.copyOf(assigns, count);
+        level = Arrays.copyOf(level, count);
+        reason = Arrays.copyOf(reason, count);
+        phase = Arrays.copyOf(phase, count);
+        seen = Arrays.copyOf(seen, count);
+        activity = Arrays.copyOf(activity, count);
+        trail = Arrays.copyOf(trail, count);
+        trailLimits = Arrays.copyOf(trailLimits, count + 1);
+        heap = Arrays.copyOf(heap, count);
+        heapIndex = Arrays.copyOf(heapIndex, count);
+        model = Arrays.copyOf(model, count);
+        for (int v = vars; v < count; v++) {
+            watches.add(new ArrayList<Clause>());
+            watches.add(new ArrayList<Clause>());
+            heapIndex[v] = -1;
+            heapInsert(v);
+        }
+        vars = count;
+    }
+
+    // Adds a clause given in DIMACS literals; returns false once the
+    // clauses are known to be unsatisfiable
+    public boolean addClause(int... clause) {
+        if (!ok) {
+            return false;
+        }
+        cancelUntil(0);
+        ArrayList<Integer> lits = new ArrayList<Integer>();
+        for (int dimacs : clause) {
+            ensureVariables(Math.abs(dimacs));
+            int lit = toLit(dimacs);
+            if (value(lit) == TRUE || lits.contains(lit ^ 1)) {
+                return true; // already satisfied, or a tautology
+            }
+            if (value(lit) != FALSE && !lits.contains(lit)) {
+                lits.add(lit);
+            }
+        }
+        if (lits.isEmpty()) {
+            ok = false;
+        } else if (lits.size() == 1) {
+            enqueue(lits.get(0), null);
+            ok = propagate() == null;
+        } else {
+            int[] array = new int[lits.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = lits.get(i);
+            }
+            attach(new Clause(array));
+            clauseCount = clauseCount + 1;
+        }
+        return ok;
+    }
+
+    // Solves without assumptions
+    public boolean solve() {
+        return solve(new int[0]);
+    }
+
+    // Solves with the given DIMACS literals assumed true; the clauses
+    // themselves are left unchanged
+    public boolean solve(int[] assumptions) {
+        if (!ok) {
+            return false;
+        }
+        cancelUntil(0);
+        if (maxLearnts == 0) {
+            maxLearnts = Math.max(clauseCount / 3.0, 2000);
+        }
+        int[] assumed = new int[assumptions.length];
+        for (int i = 0; i < assumed.length; i++) {
+            ensureVariables(Math.abs(assumptions[i]));
+            assumed[i] = toLit(assumptions[i]);
+        }
+        for (int restart = 1;; restart++) {
+            token.check();
+            int status = search(assumed, RESTART_BASE * luby(restart - 1));
+            if (status != 0) {
+                cancelUntil(0);
+                return status > 0;
+            }
+        }
+    }
+
+    // Value of a variable in the last model found
+    public boolean modelValue(int variable) {
+        return model[variable - 1];
+    }
+
+    // Runs until a model, a refutation or the conflict limit; returns 1, -1
+    // or 0 respectively
+    private int search(int[] assumed, long conflictLimit) {
+        long conflictsHere = 0;
+        while (true) {
+            Clause conflict = propagate();
+            if (conflict != null) {
+                token.check();
+                conflicts = conflicts + 1;
+                conflictsHere = conflictsHere + 1;
+                if (decisionLevel == 0) {
+                    ok = false;
+                    return -1;
+                }
+                learn(conflict);
+                if (learnts.size() >= maxLearnts + trailSize) {
+                    reduceLearnts();
+                }
+                continue;
+            }
+            if (conflictsHere >= conflictLimit) {
+                cancelUntil(0);
+                return 0;
+            }
+            int next = -1;
+            // Assumptions take the first decision levels
+            while (decisionLevel < assumed.length) {
+                int lit = assumed[decisionLevel];
+                if (value(lit) == TRUE) {
+                    newDecisionLevel();
+                } else if (value(lit) == FALSE) {
+                    return -1;
+                } else {
+                    next = lit;
+                    break;
+                }
+            }
+            if (next == -1) {
+                next = pickBranch();
+                if (next == -1) {
+                    for (int v = 0; v < vars; v++) {
+                        model[v] = assigns[v] == TRUE;
+                    }
+                    return 1;
+                }
+            }
+            newDecisionLevel();
+            enqueue(next, null);
+        }
+    }
+
+    // Analyzes a conflict, backjumps and asserts the learned clause
+    private void learn(Clause conflict) {
+        ArrayList<Integer> learnt = new ArrayList<Integer>();
+        learnt.add(-1);
+        int pathCount = 0;
+        int p = -1;
+        int index = trailSize - 1;
+        Clause clause = conflict;
+        do {
+            for (int q : clause.lits) {
+                int v = q >> 1;
+                if (p != -1 && v == (p >> 1)) {
+                    continue;
+                }
+                if (!seen[v] && level[v] > 0) {
+                    bump(v);
+                    seen[v] = true;
+                    if (level[v] >= decisionLevel) {
+                        pathCount = pathCount + 1;
+                    } else {
+                        learnt.add(q);
+                    }
+                }
+            }
+            while (!seen[trail[index] >> 1]) {
+                index = index - 1;
+            }
+            p = trail[index];
+            index = index - 1;
+            clause = reason[p >> 1];
+            seen[p >> 1] = false;
+            pathCount = pathCount - 1;
+        } while (pathCount > 0);
+        learnt.set(0, p ^ 1);
+
+        int[] lits = new int[learnt.size()];
+        int deepest = 1;
+        for (int i = 0; i < lits.length; i++) {
+            lits[i] = learnt.get(i);
+            seen[lits[i] >> 1] = false;
+            if (i > 1 && level[lits[i] >> 1] > level[lits[deepest] >> 1]) {
+                deepest = i;
+            }
+        }
+        // The second watch goes on the literal from the deepest other level,
+        // which is where the clause becomes unit again
+        int backLevel = 0;
+        int lbd = levels(lits);
+        if (lits.length > 1) {
+            int swap = lits[1];
+            lits[1] = lits[deepest];
+            lits[deepest] = swap;
+            backLevel = level[lits[1] >> 1];
+        }
+        cancelUntil(backLevel);
+        if (lits.length == 1) {
+            enqueue(lits[0], null);
+        } else {
+            Clause c = new Clause(lits);
+            c.lbd = lbd;
+            learnts.add(c);
+            attach(c);
+            enqueue(lits[0], c);
+        }
+        activityInc = activityInc / 0.95;
+    }
+
+    // Unit propagation over the watch lists; returns a conflicting clause
+    // or null
+    private Clause propagate() {
+        while (propagated < trailSize) {
+            int falseLit = trail[propagated] ^ 1;
+            propagated = propagated + 1;
+            ArrayList<Clause> list = watches.get(falseLit);
+            int kept = 0;
+            int i = 0;
+            for (; i < list.size(); i++) {
+                Clause c = list.get(i);
+                if (c.deleted) {
+                    continue; // dropped from the watch list lazily
+                }
+                int[] lits = c.lits;
+                if (lits[0] == falseLit) {
+                    lits[0] = lits[1];
+                    lits[1] = falseLit;
+                }
+                if (value(lits[0]) == TRUE) {
+                    list.set(kept++, c);
+                    continue;
+                }
+                boolean moved = false;
+                for (int k = 2; k < lits.length; k++) {
+                    if (value(lits[k]) != FALSE) {
+                        lits[1] = lits[k];
+                        lits[k] = falseLit;
+                        watches.get(lits[1]).add(c);
+                        moved = true;
+                        break;
+                    }
+                }
+                if (moved) {
+                    continue;
+                }
+                list.set(kept++, c);
+                if (value(lits[0]) == FALSE) {
+                    // Conflict: keep the rest of the list and stop
+                    for (i = i + 1; i < list.size(); i++) {
+                        list.set(kept++, list.get(i));
+                    }
+                    list.subList(kept, list.size()).clear();
+                    propagated = trailSize;
+                    return c;
+                }
+                enqueue(lits[0], c);
+            }
+            list.subList(kept, list.size()).clear();
+        }
+        return null;
+    }
+
+    // Counts the distinct decision levels among the literals
+    private int levels(int[] lits) {
+        HashSet<Integer> distinct = new HashSet<Integer>();
+        for (int lit : lits) {
+            distinct.add(level[lit >> 1]);
+        }
+        return distinct.size();
+    }
+
+    // Deletes the worse half of the learned clauses, keeping those that are
+    // the reason for a current assignment or span at most two levels
+    private void reduceLearnts() {
+        ArrayList<Clause> sorted = new ArrayList<Clause>(learnts);
+        sorted.sort((a, b) -> a.lbd != b.lbd ? b.lbd - a.lbd
+                : b.lits.length - a.lits.length);
+        ArrayList<Clause> kept = new ArrayList<Clause>();
+        int remove = sorted.size() / 2;
+        for (Clause c : sorted) {
+            boolean locked = reason[c.lits[0] >> 1] == c
+                    && value(c.lits[0]) == TRUE;
+            if (remove > 0 && !locked && c.lbd > 2) {
+                c.deleted = true;
+                remove = remove - 1;
+            } else {
+                kept.add(c);
+            }
+        }
+        learnts = kept;
+        maxLearnts = maxLearnts * 1.1;
+    }
+
+    private void attach(Clause c) {
+        watches.get(c.lits[0]).add(c);
+        watches.get(c.lits[1]).add(c);
+    }
+
+    private void enqueue(int lit, Clause from) {
+        int v = lit >> 1;
+        assigns[v] = (lit & 1) == 0 ? TRUE : FALSE;
+        level[v] = decisionLevel;
+        reason[v] = from;
+        trail[trailSize++] = lit;
+    }
+
+    private void newDecisionLevel() {
+        if (decisionLevel == trailLimits.length) {
+            trailLimits = Arrays.copyOf(trailLimits, 2 * decisionLevel + 1);
+        }
+        trailLimits[decisionLevel] = trailSize;
+        decisionLevel = decisionLevel + 1;
+    }
+
+    // Undoes every assignment above the given level
+    private void cancelUntil(int target) {
+        if (decisionLevel <= target) {
+            return;
+        }
+        for (int i = trailSize - 1; i >= trailLimits[target]; i--) {
+            int v = trail[i] >> 1;
+            phase[v] = assigns[v] == TRUE;
+            assigns[v] = UNDEF;
+            reason[v] = null;
+            if (heapIndex[v] < 0) {
+                heapInsert(v);
+            }
+        }
+        trailSize = trailLimits[target];
+        propagated = trailSize;
+        decisionLevel = target;
+    }
+
+    // Most active unassigned variable, in its saved phase
+    private int pickBranch() {
+        while (heapSize > 0) {
+            int v = heapRemoveMax();
+            if (assigns[v] == UNDEF) {
+                return phase[v] ? 2 * v : 2 * v + 1;
+            }
+        }
+        return -1;
+    }
+
+    private void bump(int v) {
+        activity[v] = activity[v] + activityInc;
+        if (activity[v] > 1e100) {
+            for (int i = 0; i < vars; i++) {
+                activity[i] = activity[i] * 1e-100;
+            }
+            activityInc = activityInc * 1e-100;
+        }
+        if (heapIndex[v] >= 0) {
+            heapUp(heapIndex[v]);
+        }
+    }
+
+    private byte value(int lit) {
+        byte value = assigns[lit >> 1];
+        return (lit & 1) == 0 ? value : (byte) -value;
+    }
+
+    private static int toLit(int dimacs) {
+        return dimacs > 0 ? 2 * (dimacs - 1) : 2 * (-dimacs - 1) + 1;
+    }
+
+    // Element x (from 0) of the Luby sequence 1 1 2 1 1 2 4 1 1 2 ...
+    private static long luby(int x) {
+        int size = 1;
+        int seq = 0;
+        while (size < x + 1) {
+            seq = seq + 1;
+            size = 2 * size + 1;
+        }
+        while (size - 1 != x) {
+            size = (size - 1) >> 1;
+            seq = seq - 1;
+            x = x % size;
+        }
+        return 1L << seq;
+    }
+
+    private void heapInsert(int v) {
+        heapIndex[v] = heapSize;
+        heap[heapSize++] = v;
+        heapUp(heapIndex[v]);
+    }
+
+    private int heapRemoveMax() {
+        int top = heap[0];
+        heapIndex[top] = -1;
+        heapSize = heapSize - 1;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapIndex[heap[0]] = 0;
+            heapDown(0);
+        }
+        return top;
+    }
+
+    private void heapUp(int i) {
+        int v = heap[i];
+        while (i > 0 && activity[heap[(i - 1) / 2]] < activity[v]) {
+            heap[i] = heap[(i - 1) / 2];
+            heapIndex[heap[i]] = i;
+            i = (i - 1) / 2;
+        }
+        heap[i] = v;
+        heapIndex[v] = i;
+    }
+
+    private void heapDown(int i) {
+        int v = heap[i];
+        while (2 * i + 1 < heapSize) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize
+                    && activity[heap[child + 1]] > activity[heap[child]]) {
+                child = child + 1;
+            }
+            if (activity[heap[child]] <= activity[v]) {
+                break;
+            }
+            heap[i] = heap[child];
+            heapIndex[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = v;
+        heapIndex[v] = i;
+    }
+}
@@ -0,0 +1,65 @@
+import java.util.Random;
+
+import org.junit.Assert;
+
+import bool_exp.ASTNode;
+
+/*
+ * Expressions and checks shared by the solver tests: random 3-CNF
+ * instances, pigeonhole instances that are unsatisfiable, and a check of an
+ * engine's result against a reference one.
+ */
+public class CnfFixtures {
+
+    // Builds a random 3-CNF expression over vars variables
+    public static String randomCnf(Random random, int vars, int clauses) {
+        StringBuilder str = new StringBuilder();
+        for (int c = 0; c < clauses; c++) {
+            str.append(c == 0 ? "(" : " && (");
+            for (int k = 0; k < 3; k++) {
+                str.append(k == 0 ? "" : " || ");
+                str.append(random.nextBoolean() ? "!" : "");
+                str.append("v").append(random.nextInt(vars));
+            }
+            str.append(")");
+        }
+        return str.toString();
+    }
+
+    // Pigeons into one hole fewer, unsatisfiable however they are placed
+    public static String pigeonhole(int holes) {
+        StringBuilder str = new StringBuilder();
+        for (int p = 0; p <= holes; p++) {
+            str.append(p == 0 ? "(" : " && (");
+            for (int h = 0; h < holes; h++) {
+                str.append(h == 0 ? "" : " || ").append("p" + p + "h" + h);
+            }
+            str.append(")");
+        }
+        for (int h = 0; h < holes; h++) {
+            for (int p = 0; p <= holes; p++) {
+                for (int q = p + 1; q <= holes; q++) {
+                    str.append(" && (!p" + p + "h" + h + " || !p" + q + "h"
+                            + h + ")");
+                }
+            }
+        }
+        return str.toString();
+    }
+
+    // Checks a result: SAT with a model of the expression, or UNSAT
+    public static void assertAgrees(ASTNode root, VariableOrder order,
+            SolveResult expected, SolveResult actual) {
+        Assert.assertEquals(expected.status, actual.status);
+        if (actual.status == SolveResult.Status.SAT) {
+            long bits = 0;
+            for (int id = 0; id < order.size(); id++) {
+                if (actual.model[id]) {
+                    bits = bits | (1L << order.shift(id));
+                }
+            }
+            Assert.assertTrue(new InterpretedEvaluator(root, order)
+                    .eval(bits));
+        }
+    }
+}
@@ -0,0 +1,135 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import bool_exp.ASTNode;
+
+/*
+ * Clause form of an expression.
+ *
+ * Literals use the DIMACS convention: variable v is written v and its
+ * negation -v. Variables 1 to n are the expression variables in VariableOrder
+ * (id + 1); anything above n is an auxiliary variable introduced by the
+ * Tseitin encoding for a subexpression. Parts of the expression that are
+ * already conjunctions of clauses, like the CNF inputs in PublicTestCases,
+ * are taken over as they are, so they get no auxiliary variables at all.
+ * Auxiliary variables are defined in both directions, which makes each of
+ * them a function of the expression variables. A subexpression object that
+ * is reached more than once, as in a miter built from two expressions, is
+ * defined only once.
+ */
+public class CnfFormula {
+
+    private final int inputs;
+    private int variables;
+    private final ArrayList<int[]> clauses = new ArrayList<int[]>();
+    // Auxiliary variable of each subexpression defined so far
+    private final IdentityHashMap<ASTNode, Integer> defined =
+            new IdentityHashMap<ASTNode, Integer>();
+
+    private CnfFormula(int inputs) {
+        this.inputs = inputs;
+        this.variables = inputs;
+    }
+
+    // Encodes an expression over the variables of the given order
+    public static CnfFormula of(ASTNode root, VariableOrder order) {
+        CnfFormula cnf = new CnfFormula(order.size());
+        cnf.assertTrue(root, order);
+        return cnf;
+    }
+
+    // Wraps clauses that already use this numbering, as produced by
+    // CnfPreprocessor
+    public static CnfFormula of(int inputs, int variables,
+            List<int[]> clauses) {
+        CnfFormula cnf = new CnfFormula(inputs);
+        cnf.variables = variables;
+        cnf.clauses.addAll(clauses);
+        return cnf;
+    }
+
+    // Number of expression variables
+    public int inputs() {
+        return inputs;
+    }
+
+    // Number of variables including auxiliary ones
+    public int variables() {
+        return variables;
+    }
+
+    public List<int[]> clauses() {
+        return clauses;
+    }
+
+    // Adds clauses requiring the node to be true
+    private void assertTrue(ASTNode node, VariableOrder order) {
+        if (node.isAnd()) {
+            for (ASTNode operand : chain(node)) {
+                assertTrue(operand, order);
+            }
+        } else if (node.isOr()) {
+            ArrayList<ASTNode> operands = chain(node);
+            int[] clause = new int[operands.size()];
+            for (int i = 0; i < clause.length; i++) {
+                clause[i] = literal(operands.get(i), order);
+            }
+            clauses.add(clause);
+        } else {
+            clauses.add(new int[] { literal(node, order) });
+        }
+    }
+
+    // Returns a literal equivalent to the node, defining a new auxiliary
+    // variable for && and || subexpressions
+    private int literal(ASTNode node, VariableOrder order) {
+        if (node.isId()) {
+            return order.id(node.getId()) + 1;
+        } else if (node.isNot()) {
+            return -literal(node.child1, order);
+        }
+        Integer known = defined.get(node);
+        if (known != null) {
+            return known;
+        }
+        ArrayList<ASTNode> operands = chain(node);
+        int[] lits = new int[operands.size()];
+        for (int i = 0; i < lits.length; i++) {
+            lits[i] = literal(operands.get(i), order);
+        }
+        variables = variables + 1;
+        int x = variables;
+        // For &&: x -> each operand, and all operands -> x.
+        // For || the same with every literal negated.
+        int sign = node.isAnd() ? 1 : -1;
+        int[] back = new int[lits.length + 1];
+        back[0] = sign * x;
+        for (int i = 0; i < lits.length; i++) {
+            clauses.add(new int[] { -sign * x, sign * lits[i] });
+            back[i + 1] = -sign * lits[i];
+        }
+        clauses.add(back);
+        defined.put(node, x);
+        return x;
+    }
+
+    // Collects the operands of a chain of the same binary operator, left to
+    // right, without recursing down the chain
+    private static ArrayList<ASTNode> chain(ASTNode node) {
+        ArrayList<ASTNode> operands = new ArrayList<ASTNode>();
+        ArrayDeque<ASTNode> pending = new ArrayDeque<ASTNode>();
+        pending.push(node);
+        while (!pending.isEmpty()) {
+            ASTNode cur = pending.pop();
+            if (cur.isAnd() == node.isAnd() && cur.isOr() == node.isOr()) {
+                pending.push(cur.child2);
+                pending.push(cur.child1);
+            } else {
+                operands.add(cur);
+            }
+        }
+        return operands;
+    }
+}
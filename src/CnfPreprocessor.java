@@ -0,0 +1,444 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/*
+ * Simplifies the clauses of a CnfFormula before solving or enumerating.
+ *
+ * Runs unit propagation, subsumption, self-subsuming resolution, and
+ * bounded variable elimination (replacing the clauses of a variable with
+ * all their resolvents, when that does not add clauses), and with
+ * keepModels off also pure literal elimination. Every variable removed this
+ * way is recorded on a reconstruction stack:
+ *   fixed variables with their value, and
+ *   eliminated variables with the clauses they were removed from.
+ * Walking the stack backwards from a model of the simplified clauses gives
+ * a model of the original ones (extend), or every one of them (expand).
+ *
+ * Units and variable elimination keep the set of models, projected onto the
+ * remaining variables, exactly as it was, so expand can recover exact
+ * listings. Pure literals only keep satisfiability, which is why they are
+ * left alone when the models matter.
+ */
+public class CnfPreprocessor {
+
+    // Variables with more occurrences than this are not eliminated
+    private static final int MAX_OCCURRENCES = 16;
+    // Resolvents longer than this stop an elimination
+    private static final int MAX_RESOLVENT = 24;
+
+    // One entry of the reconstruction stack
+    private static class Step {
+        final int var;
+        final boolean fixed;
+        final boolean value;
+        final int[][] clauses;
+
+        Step(int var, boolean fixed, boolean value, int[][] clauses) {
+            this.var = var;
+            this.fixed = fixed;
+            this.value = value;
+            this.clauses = clauses;
+        }
+    }
+
+    private final int inputs;
+    private final int variables;
+    private final boolean keepModels;
+    // Clauses by index, null once removed
+    private final ArrayList<int[]> clauses = new ArrayList<int[]>();
+    // Indices of the clauses containing each literal, by literal code
+    private final ArrayList<ArrayList<Integer>> occurs =
+            new ArrayList<ArrayList<Integer>>();
+    private final ArrayList<Integer> units = new ArrayList<Integer>();
+    private final boolean[] removed;
+    private final ArrayList<Step> stack = new ArrayList<Step>();
+    private final int[] mark;
+    private int stamp = 0;
+    private boolean unsat = false;
+
+    private CnfPreprocessor(CnfFormula cnf, boolean keepModels) {
+        this.inputs = cnf.inputs();
+        this.variables = cnf.variables();
+        this.keepModels = keepModels;
+        this.removed = new boolean[variables + 1];
+        this.mark = new int[2 * variables];
+        for (int i = 0; i < 2 * variables; i++) {
+            occurs.add(new ArrayList<Integer>());
+        }
+        for (int[] clause : cnf.clauses()) {
+            add(clause);
+        }
+    }
+
+    // Simplifies the clauses; with keepModels the models over the remaining
+    // variables stay exactly those of the original clauses
+    public static CnfPreprocessor run(CnfFormula cnf, boolean keepModels) {
+        CnfPreprocessor pre = new CnfPreprocessor(cnf, keepModels);
+        pre.simplify();
+        return pre;
+    }
+
+    // Whether the clauses were found to be unsatisfiable
+    public boolean isUnsat() {
+        return unsat;
+    }
+
+    // The simplified clauses over the original variable numbering
+    public CnfFormula formula() {
+        ArrayList<int[]> live = new ArrayList<int[]>();
+        if (unsat) {
+            live.add(new int[0]);
+        }
+        for (int[] clause : clauses) {
+            if (clause != null) {
+                live.add(clause);
+            }
+        }
+        return CnfFormula.of(inputs, variables, live);
+    }
+
+    // The variables still occurring in the simplified clauses, ascending
+    public int[] remaining() {
+        ArrayList<Integer> vars = new ArrayList<Integer>();
+        for (int v = 1; v <= variables; v++) {
+            if (!removed[v] && count(v) + count(-v) > 0) {
+                vars.add(v);
+            }
+        }
+        int[] result = new int[vars.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = vars.get(i);
+        }
+        return result;
+    }
+
+    // Completes a model of the simplified clauses, given by values[v - 1],
+    // to one of the original clauses, in place
+    public boolean[] extend(boolean[] values) {
+        for (int i = stack.size() - 1; i >= 0; i--) {
+            Step step = stack.get(i);
+            if (step.fixed) {
+                values[step.var - 1] = step.value;
+            } else {
+                values[step.var - 1] = !allows(step, false, values);
+            }
+        }
+        return values;
+    }
+
+    // Passes every model of the original clauses that agrees with the given
+    // model of the simplified ones to the consumer. The array is reused
+    // between calls.
+    public void expand(boolean[] values, Consumer<boolean[]> each) {
+        int top = stack.size() - 1;
+        // Per stack entry: the next value to try, 0 for false, 1 for true,
+        // 2 when both have been tried
+        int[] next = new int[stack.size()];
+        int i = top;
+        while (i <= top) {
+            if (i < 0) {
+                each.accept(values);
+                i = 0;
+                continue;
+            }
+            Step step = stack.get(i);
+            boolean descended = false;
+            while (next[i] < 2) {
+                boolean value = next[i] == 1;
+                next[i] = next[i] + 1;
+                if (step.fixed ? value == step.value
+                        : allows(step, value, values)) {
+                    values[step.var - 1] = value;
+                    descended = true;
+                    break;
+                }
+            }
+            if (descended) {
+                i = i - 1;
+            } else {
+                next[i] = 0;
+                i = i + 1;
+            }
+        }
+    }
+
+    // Whether the eliminated variable may take the value, that is whether
+    // every clause it was removed from still holds
+    private static boolean allows(Step step, boolean value, boolean[] values) {
+        for (int[] clause : step.clauses) {
+            boolean satisfied = false;
+            for (int lit : clause) {
+                int v = Math.abs(lit);
+                boolean litValue = v == step.var ? value : values[v - 1];
+                if (litValue == (lit > 0)) {
+                    satisfied = true;
+                    break;
+                }
+            }
+            if (!satisfied) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Applies the simplifications until none of them changes anything
+    private void simplify() {
+        boolean changed = true;
+        while (changed && !unsat) {
+            propagate();
+            changed = subsume();
+            if (!keepModels) {
+                changed = pureLiterals() || changed;
+            }
+            changed = eliminate() || changed;
+        }
+        if (unsat) {
+            return;
+        }
+        // Variables that no longer occur anywhere may take either value
+        for (int v = 1; v <= variables; v++) {
+            if (!removed[v] && count(v) + count(-v) == 0) {
+                removed[v] = true;
+                stack.add(new Step(v, false, false, new int[0][]));
+            }
+        }
+    }
+
+    private static int code(int lit) {
+        return lit > 0 ? 2 * (lit - 1) : 2 * (-lit - 1) + 1;
+    }
+
+    private int count(int lit) {
+        return occurs.get(code(lit)).size();
+    }
+
+    // Adds a clause, dropping repeated literals and tautologies
+    private void add(int[] clause) {
+        stamp = stamp + 1;
+        int[] lits = new int[clause.length];
+        int size = 0;
+        for (int lit : clause) {
+            if (mark[code(-lit)] == stamp) {
+                return;
+            }
+            if (mark[code(lit)] != stamp) {
+                mark[code(lit)] = stamp;
+                lits[size] = lit;
+                size = size + 1;
+            }
+        }
+        if (size == 0) {
+            unsat = true;
+            return;
+        }
+        int index = clauses.size();
+        clauses.add(Arrays.copyOf(lits, size));
+        for (int i = 0; i < size; i++) {
+            occurs.get(code(lits[i])).add(index);
+        }
+        if (size == 1) {
+            units.add(index);
+        }
+    }
+
+    private void remove(int index) {
+        for (int lit : clauses.get(index)) {
+            occurs.get(code(lit)).remove(Integer.valueOf(index));
+        }
+        clauses.set(index, null);
+    }
+
+    // Drops one literal from a clause
+    private void strengthen(int index, int lit) {
+        int[] old = clauses.get(index);
+        int[] lits = new int[old.length - 1];
+        int size = 0;
+        for (int l : old) {
+            if (l != lit) {
+                lits[size] = l;
+                size = size + 1;
+            }
+        }
+        occurs.get(code(lit)).remove(Integer.valueOf(index));
+        clauses.set(index, lits);
+        if (lits.length == 0) {
+            unsat = true;
+        } else if (lits.length == 1) {
+            units.add(index);
+        }
+    }
+
+    // Sets the variables of unit clauses and simplifies with them
+    private void propagate() {
+        while (!units.isEmpty() && !unsat) {
+            int[] clause = clauses.get(units.remove(units.size() - 1));
+            if (clause == null || clause.length != 1) {
+                continue;
+            }
+            int lit = clause[0];
+            int v = Math.abs(lit);
+            removed[v] = true;
+            stack.add(new Step(v, true, lit > 0, null));
+            for (int index : new ArrayList<Integer>(occurs.get(code(lit)))) {
+                remove(index);
+            }
+            for (int index : new ArrayList<Integer>(occurs.get(code(-lit)))) {
+                strengthen(index, -lit);
+            }
+        }
+    }
+
+    // Removes clauses containing another clause, and removes a literal from
+    // a clause when another clause matches it except for that literal
+    // negated. Returns whether anything changed.
+    private boolean subsume() {
+        boolean changed = false;
+        for (int c = 0; c < clauses.size() && !unsat; c++) {
+            int[] clause = clauses.get(c);
+            if (clause == null) {
+                continue;
+            }
+            // Any clause it touches contains its rarest variable
+            int rarest = clause[0];
+            for (int lit : clause) {
+                if (count(lit) + count(-lit) < count(rarest) + count(-rarest)) {
+                    rarest = lit;
+                }
+            }
+            stamp = stamp + 1;
+            for (int lit : clause) {
+                mark[code(lit)] = stamp;
+            }
+            ArrayList<Integer> candidates =
+                    new ArrayList<Integer>(occurs.get(code(rarest)));
+            candidates.addAll(occurs.get(code(-rarest)));
+            for (int d : candidates) {
+                int[] other = clauses.get(d);
+                if (d == c || other == null || other.length < clause.length) {
+                    continue;
+                }
+                int matched = 0;
+                int flipped = 0;
+                int flippedLit = 0;
+                for (int lit : other) {
+                    if (mark[code(lit)] == stamp) {
+                        matched = matched + 1;
+                    } else if (mark[code(-lit)] == stamp) {
+                        flipped = flipped + 1;
+                        flippedLit = lit;
+                    }
+                }
+                if (matched == clause.length) {
+                    remove(d);
+                    changed = true;
+                } else if (matched == clause.length - 1 && flipped == 1) {
+                    strengthen(d, flippedLit);
+                    changed = true;
+                }
+            }
+        }
+        propagate();
+        return changed;
+    }
+
+    // Satisfies the literals whose negation occurs nowhere
+    private boolean pureLiterals() {
+        boolean changed = false;
+        for (int v = 1; v <= variables; v++) {
+            if (removed[v] || count(v) + count(-v) == 0) {
+                continue;
+            }
+            int lit = count(-v) == 0 ? v : count(v) == 0 ? -v : 0;
+            if (lit != 0) {
+                removed[v] = true;
+                stack.add(new Step(v, true, lit > 0, null));
+                for (int index : new ArrayList<Integer>(
+                        occurs.get(code(lit)))) {
+                    remove(index);
+                }
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    // Replaces the clauses of each variable by their resolvents on it when
+    // that does not increase the number of clauses
+    private boolean eliminate() {
+        boolean changed = false;
+        for (int v = 1; v <= variables && !unsat; v++) {
+            int pos = count(v);
+            int neg = count(-v);
+            if (removed[v] || pos + neg == 0 || pos + neg > MAX_OCCURRENCES) {
+                continue;
+            }
+            ArrayList<int[]> resolvents = new ArrayList<int[]>();
+            boolean bounded = true;
+            for (int p : occurs.get(code(v))) {
+                for (int n : occurs.get(code(-v))) {
+                    int[] resolvent = resolve(clauses.get(p), clauses.get(n),
+                            v);
+                    if (resolvent == null) {
+                        continue;
+                    }
+                    resolvents.add(resolvent);
+                    if (resolvents.size() > pos + neg
+                            || resolvent.length > MAX_RESOLVENT) {
+                        bounded = false;
+                        break;
+                    }
+                }
+                if (!bounded) {
+                    break;
+                }
+            }
+            if (!bounded) {
+                continue;
+            }
+            ArrayList<Integer> old = new ArrayList<Integer>(
+                    occurs.get(code(v)));
+            old.addAll(occurs.get(code(-v)));
+            int[][] saved = new int[old.size()][];
+            for (int i = 0; i < saved.length; i++) {
+                saved[i] = clauses.get(old.get(i));
+                remove(old.get(i));
+            }
+            removed[v] = true;
+            stack.add(new Step(v, false, false, saved));
+            for (int[] resolvent : resolvents) {
+                add(resolvent);
+            }
+            propagate();
+            changed = true;
+        }
+        return changed;
+    }
+
+    // The resolvent of two clauses on a variable, or null if it is a
+    // tautology
+    private int[] resolve(int[] a, int[] b, int v) {
+        stamp = stamp + 1;
+        int[] lits = new int[a.length + b.length];
+        int size = 0;
+        for (int lit : a) {
+            if (lit != v) {
+                mark[code(lit)] = stamp;
+                lits[size] = lit;
+                size = size + 1;
+            }
+        }
+        for (int lit : b) {
+            if (lit == -v || mark[code(lit)] == stamp) {
+                continue;
+            }
+            if (mark[code(-lit)] == stamp) {
+                return null;
+            }
+            lits[size] = lit;
+            size = size + 1;
+        }
+        return Arrays.copyOf(lits, size);
+    }
+}
@@ -0,0 +1,109 @@
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import bool_exp.ASTNode;
+import bool_exp.BoolSatParser;
+
+// Junit testing of the clause preprocessor and its reconstruction stack
+public class CnfPreprocessorTest {
+    // Builds a random expression mixing clauses with nested subexpressions
+    private String randomExpression(Random random, int vars, int clauses) {
+        StringBuilder str = new StringBuilder();
+        for (int c = 0; c < clauses; c++) {
+            str.append(c == 0 ? "(" : " && (");
+            int width = 1 + random.nextInt(3);
+            for (int k = 0; k < width; k++) {
+                str.append(k == 0 ? "" : " || ");
+                str.append(random.nextBoolean() ? "!" : "");
+                if (random.nextInt(4) == 0) {
+                    str.append("(v").append(random.nextInt(vars))
+                            .append(" && v").append(random.nextInt(vars))
+                            .append(")");
+                } else {
+                    str.append("v").append(random.nextInt(vars));
+                }
+            }
+            str.append(")");
+        }
+        return str.toString();
+    }
+
+    // Tests that expanding the simplified models gives exactly the
+    // satisfying assignments of the expression
+    @Test
+    public void testExpandIsExact() {
+        Random random = new Random(38);
+        for (int round = 0; round < 200; round++) {
+            ASTNode root = BoolSatParser.parse(
+                    randomExpression(random, 7, 3 + random.nextInt(12)));
+            VariableOrder order = VariableOrder.of(root);
+            CnfFormula cnf = CnfFormula.of(root, order);
+            CnfPreprocessor pre = CnfPreprocessor.run(cnf, true);
+            Evaluator evaluator = new InterpretedEvaluator(root, order);
+            final boolean[] listed = new boolean[(int) order.assignments()];
+            if (!pre.isUnsat()) {
+                int[] kept = pre.remaining();
+                boolean[] values = new boolean[cnf.variables()];
+                CdclSolver solver = CdclSolver.of(pre.formula());
+                // Visits every model of the simplified clauses
+                while (solver.solve()) {
+                    int[] block = new int[kept.length];
+                    for (int i = 0; i < kept.length; i++) {
+                        values[kept[i] - 1] = solver.modelValue(kept[i]);
+                        block[i] = values[kept[i] - 1] ? -kept[i] : kept[i];
+                    }
+                    pre.expand(values, full -> {
+                        int index = 0;
+                        for (int id = 0; id < order.size(); id++) {
+                            if (full[id]) {
+                                index |= 1 << order.shift(id);
+                            }
+                        }
+                        listed[index] = true;
+                    });
+                    if (block.length == 0 || !solver.addClause(block)) {
+                        break;
+                    }
+                }
+            }
+            for (int bits = 0; bits < listed.length; bits++) {
+                Assert.assertEquals(evaluator.eval(bits), listed[bits]);
+            }
+        }
+    }
+
+    // Tests that extended models, with pure literals removed too, satisfy
+    // the expression
+    @Test
+    public void testExtendGivesModel() {
+        Random random = new Random(83);
+        for (int round = 0; round < 200; round++) {
+            ASTNode root = BoolSatParser.parse(
+                    randomExpression(random, 8, 5 + random.nextInt(20)));
+            VariableOrder order = VariableOrder.of(root);
+            CnfPreprocessor pre = CnfPreprocessor.run(
+                    CnfFormula.of(root, order), false);
+            TruthTable table = TruthTable.of(
+                    new InterpretedEvaluator(root, order), order);
+            CdclSolver solver = CdclSolver.of(pre.formula());
+            boolean sat = !pre.isUnsat() && solver.solve();
+            Assert.assertEquals(table.count() > 0, sat);
+            if (sat) {
+                boolean[] values = new boolean[solver.variables()];
+                for (int v = 1; v <= values.length; v++) {
+                    values[v - 1] = solver.modelValue(v);
+                }
+                pre.extend(values);
+                long bits = 0;
+                for (int id = 0; id < order.size(); id++) {
+                    if (values[id]) {
+                        bits |= 1L << order.shift(id);
+                    }
+                }
+                Assert.assertTrue(table.eval(bits));
+            }
+        }
+    }
+}
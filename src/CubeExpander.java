@@ -0,0 +1,136 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+import java.util.Scanner;
+
+/*
+ * Expands a cube listing written by PA4BoolSat --cubes back into the exact
+ * listing PA4BoolSat prints without it.
+ *
+ * Usage: java CubeExpander cubesFile
+ *
+ * Each cube stands for the assignments that agree with its fixed variables.
+ * Those are produced in increasing order per cube, and the cubes are merged
+ * through a priority queue on their next assignment, so memory grows with
+ * the number of cubes rather than the number of assignments.
+ */
+public class CubeExpander {
+
+    /*
+     * The assignments of one cube, walked in increasing order by counting
+     * through the don't-care bits only.
+     */
+    private static class Cube implements Comparable<Cube> {
+        final long fixedMask;
+        final long fixedBits;
+        final boolean value;
+        long next;
+        boolean done;
+
+        Cube(long fixedMask, long fixedBits, boolean value) {
+            this.fixedMask = fixedMask;
+            this.fixedBits = fixedBits;
+            this.value = value;
+            this.next = fixedBits;
+        }
+
+        // Moves to the next assignment of the cube
+        void advance(long allBits) {
+            long free = allBits & ~fixedMask;
+            long count = ((next | ~free) + 1) & free;
+            done = count == 0;
+            next = count | fixedBits;
+        }
+
+        public int compareTo(Cube other) {
+            return Long.compare(next, other.next);
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.err.println("USAGE: java CubeExpander <cubesFile>");
+            System.exit(1);
+        }
+        try (Scanner in = new Scanner(new File(args[0]))) {
+            expand(in);
+        } catch (FileNotFoundException e) {
+            System.out.println("ERROR: File not found");
+            System.exit(1);
+        } catch (IOException e) {
+            System.out.println("ERROR: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // Reads a cube listing and prints the expanded listing to stdout
+    public static void expand(Scanner in) throws IOException {
+        expand(in, System.out);
+    }
+
+    // Reads a cube listing and writes the expanded listing to out
+    public static void expand(Scanner in, OutputStream out)
+            throws IOException {
+        String command = in.nextLine().substring("input: ".length());
+        boolean sat = in.nextLine().equals("SAT");
+        ArrayList<String> names = null;
+        boolean debug = false;
+        ArrayList<Cube> cubes = new ArrayList<Cube>();
+        while (in.hasNextLine()) {
+            String line = in.nextLine();
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] parts = line.split(", ");
+            debug = !parts[parts.length - 1].contains(": ");
+            int size = debug ? parts.length - 1 : parts.length;
+            if (names == null) {
+                names = new ArrayList<String>();
+                for (int i = 0; i < size; i++) {
+                    names.add(parts[i].substring(0, parts[i].indexOf(": ")));
+                }
+            }
+            long mask = 0;
+            long bits = 0;
+            for (int i = 0; i < size; i++) {
+                String value = parts[i].substring(parts[i].indexOf(": ") + 2);
+                long bit = 1L << (size - 1 - i);
+                if (!value.equals("-")) {
+                    mask = mask | bit;
+                }
+                if (value.equals("true")) {
+                    bits = bits | bit;
+                }
+            }
+            cubes.add(new Cube(mask, bits,
+                    !debug || parts[parts.length - 1].equals("true")));
+        }
+        if (names == null) {
+            // Nothing to expand: an UNSAT listing without debug mode
+            PrintStream status = new PrintStream(out);
+            status.println("input: " + command);
+            status.println(sat ? "SAT" : "UNSAT");
+            status.flush();
+            return;
+        }
+        VariableOrder order = new VariableOrder(names);
+        long allBits = order.assignments() - 1;
+        AssignmentWriter writer = new TextAssignmentWriter(order, debug,
+                out);
+        writer.begin(command, sat);
+        PriorityQueue<Cube> queue = new PriorityQueue<Cube>(cubes);
+        while (!queue.isEmpty()) {
+            Cube cube = queue.poll();
+            writer.write(cube.next, cube.value);
+            cube.advance(allBits);
+            if (!cube.done) {
+                queue.add(cube);
+            }
+        }
+        writer.finish();
+    }
+}
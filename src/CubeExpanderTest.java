@@ -0,0 +1,46 @@
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.Scanner;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import bool_exp.ASTNode;
+import bool_exp.BoolSatParser;
+
+// Junit testing of cube listings and their expansion
+public class CubeExpanderTest {
+    // Tests that expanding the cube listing gives back the plain listing,
+    // with and without debug mode
+    @Test
+    public void testExpandsToListing() throws Exception {
+        Random random = new Random(31);
+        for (int round = 0; round < 200; round++) {
+            StringBuilder expression = new StringBuilder("x0");
+            int vars = 1 + random.nextInt(10);
+            for (int i = 1; i < 2 * vars; i++) {
+                expression.append(random.nextBoolean() ? " || " : " && ")
+                        .append(random.nextBoolean() ? "!x" : "x")
+                        .append(random.nextInt(vars));
+            }
+            String command = expression.toString();
+            ASTNode root = BoolSatParser.parse(command);
+            ExpressionIndex index = ExpressionIndex.of(root);
+            VariableOrder order = index.order();
+            boolean debug = round % 2 == 1;
+
+            ByteArrayOutputStream plain = new ByteArrayOutputStream();
+            PA4BoolSat.printIndexed(new InterpretedEvaluator(index), order,
+                    new TextAssignmentWriter(order, debug, plain), debug,
+                    CancellationToken.NONE, command);
+            ByteArrayOutputStream cubes = new ByteArrayOutputStream();
+            long written = new CubeWriter(order, debug, cubes)
+                    .write(Bdd.of(root, order), command);
+            Assert.assertEquals(written,
+                    cubes.toString().split("\n").length - 2);
+            ByteArrayOutputStream expanded = new ByteArrayOutputStream();
+            CubeExpander.expand(new Scanner(cubes.toString()), expanded);
+            Assert.assertEquals(plain.toString(), expanded.toString());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+import java.io.IOException;
+import java.io.OutputStream;
+
+/*
+ * Writes the satisfying assignments of an expression as cubes: lines in the
+ * usual listing form where a variable may also be "-", meaning either value.
+ *
+ *     input: a || b
+ *     SAT
+ *     a: false, b: true
+ *     a: true, b: -
+ *
+ * Every path from the root of the expression's Bdd to the TRUE terminal is
+ * one cube; variables the path skips are don't-cares. The cubes are
+ * disjoint and come out low branch first, i.e. in the order of their
+ * smallest assignment. In debug mode the paths to FALSE are written too and
+ * each line ends with the value, like a DEBUG listing. CubeExpander turns a
+ * cube listing back into the full listing.
+ *
+ * The lines go through BudgetedLines, and the walk polls the budget every
+ * CHECK_INTERVAL nodes, since without DEBUG long stretches of it may write
+ * nothing at all.
+ */
+public class CubeWriter {
+
+    private final BudgetedLines out;
+    private final Budget budget;
+    private final VariableOrder order;
+    private final boolean debug;
+    // Per variable state of the current path: 0 false, 1 true, 2 either
+    private final int[] path;
+    private long cubes = 0;
+    private long visits = 0;
+
+    public CubeWriter(VariableOrder order, boolean debug, OutputStream out) {
+        this(order, debug, out, new Budget(0, 0, 0));
+    }
+
+    public CubeWriter(VariableOrder order, boolean debug, OutputStream out,
+            Budget budget) {
+        this.out = new BudgetedLines(out, budget);
+        this.budget = budget;
+        this.order = order;
+        this.debug = debug;
+        this.path = new int[order.size()];
+    }
+
+    // Writes the header and every cube of the diagram, returning the number
+    // of cubes written
+    public long write(Bdd bdd, String command) throws IOException {
+        out.begin(command, bdd.root() == Bdd.FALSE ? "UNSAT" : "SAT");
+        walk(bdd, bdd.root(), 0);
+        out.flush();
+        return cubes;
+    }
+
+    // Follows both branches of a node, starting at variable next
+    private void walk(Bdd bdd, int node, int next) throws IOException {
+        visits = visits + 1;
+        if ((visits & (Budget.CHECK_INTERVAL - 1)) == 0) {
+            budget.check();
+        }
+        int v = bdd.var(node);
+        for (int id = next; id < v; id++) {
+            path[id] = 2;
+        }
+        if (node == Bdd.TRUE || node == Bdd.FALSE) {
+            if (node == Bdd.TRUE || debug) {
+                writeCube(node == Bdd.TRUE);
+            }
+            return;
+        }
+        path[v] = 0;
+        walk(bdd, bdd.low(node), v + 1);
+        path[v] = 1;
+        walk(bdd, bdd.high(node), v + 1);
+    }
+
+    private void writeCube(boolean value) throws IOException {
+        StringBuilder line = new StringBuilder();
+        for (int id = 0; id < path.length; id++) {
+            if (id > 0) {
+                line.append(", ");
+            }
+            line.append(order.name(id)).append(": ");
+            line.append(path[id] == 2 ? "-" : path[id] == 1 ? "true" : "false");
+        }
+        if (debug) {
+            line.append(", ").append(value);
+        }
+        out.write(line.toString());
+        cubes = cubes + 1;
+    }
+}
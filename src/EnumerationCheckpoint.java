@@ -0,0 +1,122 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/*
+ * Progress of an enumeration written to the --out file, saved so that a run
+ * which dies can be picked up again with --resume.
+ *
+ * It records which expression and variable order the listing belongs to,
+ * the output settings it is written with (DEBUG and --format), the slice of the assignment space being listed, the next index to
+ * evaluate and how many bytes of output are complete up to that index.
+ * Anything in the output file past that offset is thrown away on resume.
+ * Before the SAT/UNSAT line is written the run is still looking for the
+ * first satisfying assignment; the next index then tells how far that
+ * search got. A checkpoint is only resumed with the settings it was taken
+ * with, since the output file holds records in that form.
+ */
+public class EnumerationCheckpoint {
+
+    private static final int FILE_MAGIC = 0x4253434b;
+    private static final int FILE_VERSION = 3;
+
+    // CanonicalForm hash of the expression
+    public final String hash;
+    // Variable names in order, comma separated
+    public final String variables;
+    // Output settings of the listing: DEBUG mode and --format
+    public final boolean debug;
+    public final String format;
+    // The slice [start, end) of assignment indices being listed
+    public final long start;
+    public final long end;
+    public long next;
+    public long offset = 0;
+    // Whether the SAT/UNSAT line has been written, and what it said
+    public boolean header = false;
+    public boolean sat = false;
+
+    public EnumerationCheckpoint(String hash, String variables,
+            boolean debug, String format, long start, long end) {
+        this.hash = hash;
+        this.variables = variables;
+        this.debug = debug;
+        this.format = format;
+        this.start = start;
+        this.end = end;
+        this.next = start;
+    }
+
+    // The variable names of an order in checkpoint form
+    public static String variables(VariableOrder order) {
+        StringBuilder str = new StringBuilder();
+        for (int id = 0; id < order.size(); id++) {
+            if (id > 0) {
+                str.append(',');
+            }
+            str.append(order.name(id));
+        }
+        return str.toString();
+    }
+
+    // Whether the checkpoint was taken for this expression
+    public boolean matches(String hash, VariableOrder order) {
+        return this.hash.equals(hash) && variables.equals(variables(order));
+    }
+
+    // Whether the checkpoint was taken with these output settings
+    public boolean matches(boolean debug, String format) {
+        return this.debug == debug && this.format.equals(format);
+    }
+
+    // Reads a saved checkpoint
+    public static EnumerationCheckpoint load(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new FileInputStream(file))) {
+            if (in.readInt() != FILE_MAGIC) {
+                throw new IOException("Not a checkpoint file: " + file);
+            }
+            if (in.readInt() != FILE_VERSION) {
+                throw new IOException("Unsupported checkpoint file: " + file);
+            }
+            EnumerationCheckpoint checkpoint = new EnumerationCheckpoint(
+                    BinaryAssignmentWriter.readString(in),
+                    BinaryAssignmentWriter.readString(in), in.readBoolean(),
+                    BinaryAssignmentWriter.readString(in), in.readLong(),
+                    in.readLong());
+            checkpoint.next = in.readLong();
+            checkpoint.offset = in.readLong();
+            checkpoint.header = in.readBoolean();
+            checkpoint.sat = in.readBoolean();
+            return checkpoint;
+        }
+    }
+
+    // Writes through a temporary file so a crash while saving leaves the
+    // previous checkpoint intact
+    public void save(File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new FileOutputStream(temp))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            BinaryAssignmentWriter.writeString(out, hash);
+            BinaryAssignmentWriter.writeString(out, variables);
+            out.writeBoolean(debug);
+            BinaryAssignmentWriter.writeString(out, format);
+            out.writeLong(start);
+            out.writeLong(end);
+            out.writeLong(next);
+            out.writeLong(offset);
+            out.writeBoolean(header);
+            out.writeBoolean(sat);
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Cannot replace checkpoint " + file);
+        }
+    }
+}
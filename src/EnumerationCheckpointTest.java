@@ -0,0 +1,126 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import bool_exp.BoolSatParser;
+
+// Junit testing of --checkpoint and --resume
+public class EnumerationCheckpointTest {
+    // Satisfied by a little over half of the 2^18 assignments
+    private static final String EXPRESSION = "(v0 || !v1 || v2) && "
+            + "(!v3 || v4 || v5) && (v6 || v7 || !v8) && (!v9 || !v10) && "
+            + "(v11 || v12 || v13 || !v14) && (v15 || !v16 || v17)";
+
+    // Lists the expression with the given arguments, cancelling the run
+    // once stopAfter assignments are evaluated; returns whether it finished
+    private boolean list(String[] args, long stopAfter) throws IOException {
+        ExpressionIndex index = ExpressionIndex.of(
+                BoolSatParser.parse(EXPRESSION));
+        Budget budget = new Budget(0, 0, 0);
+        InterpretedEvaluator evaluator = new InterpretedEvaluator(index);
+        long[] evaluated = { 0 };
+        Evaluator counting = bits -> {
+            evaluated[0] = evaluated[0] + 1;
+            if (evaluated[0] == stopAfter) {
+                budget.exceed("cancelled");
+            }
+            return evaluator.eval(bits);
+        };
+        try {
+            PA4BoolSat.printRange(Options.parse(args), index.root(),
+                    counting, index.order(), budget, EXPRESSION, 0);
+            return true;
+        } catch (CancellationException e) {
+            return false;
+        }
+    }
+
+    // Builds the arguments of a checkpointed run
+    private String[] args(boolean debug, String format, File out, File saved,
+            boolean resume) {
+        ArrayList<String> args = new ArrayList<String>();
+        args.add("file");
+        if (debug) {
+            args.add("DEBUG");
+        }
+        args.addAll(Arrays.asList("--format", format, "--out", out.getPath(),
+                "--checkpoint", saved.getPath()));
+        args.add(resume ? "--resume" : "--range");
+        if (!resume) {
+            args.add(":");
+        }
+        return args.toArray(new String[args.size()]);
+    }
+
+    // Tests that a run interrupted twice and resumed writes exactly what an
+    // uninterrupted run writes, in every output form
+    @Test
+    public void testResumeIsByteIdentical() throws Exception {
+        for (String format : new String[] { "text", "binary" }) {
+            for (boolean debug : new boolean[] { false, true }) {
+                File whole = File.createTempFile("whole", ".out");
+                File out = File.createTempFile("resumed", ".out");
+                File saved = File.createTempFile("resumed", ".ckpt");
+                try {
+                    saved.delete();
+                    Assert.assertTrue(list(args(debug, format, whole,
+                            new File(saved.getPath() + ".unused"), false),
+                            -1));
+                    Assert.assertFalse(list(args(debug, format, out, saved,
+                            false), 100000));
+                    // Leaves a torn record behind, as a crash would
+                    try (FileOutputStream torn = new FileOutputStream(out,
+                            true)) {
+                        torn.write("v0: tr".getBytes());
+                    }
+                    Assert.assertFalse(list(args(debug, format, out, saved,
+                            true), 100000));
+                    Assert.assertTrue(list(args(debug, format, out, saved,
+                            true), -1));
+                    Assert.assertArrayEquals(Files.readAllBytes(whole.toPath()),
+                            Files.readAllBytes(out.toPath()));
+                    Assert.assertFalse(saved.exists());
+                } finally {
+                    whole.delete();
+                    out.delete();
+                    saved.delete();
+                }
+            }
+        }
+    }
+
+    // Tests that a checkpoint is not resumed with other output settings
+    @Test
+    public void testSettingsMismatch() throws Exception {
+        File out = File.createTempFile("resumed", ".out");
+        File saved = File.createTempFile("resumed", ".ckpt");
+        try {
+            Assert.assertFalse(list(args(false, "text", out, saved, false),
+                    100000));
+            long length = out.length();
+            for (String[] args : new String[][] {
+                    args(true, "text", out, saved, true),
+                    args(false, "binary", out, saved, true) }) {
+                try {
+                    list(args, -1);
+                    Assert.fail("resumed with other settings");
+                } catch (IOException e) {
+                    Assert.assertEquals(
+                            "Checkpoint was taken with other output settings",
+                            e.getMessage());
+                }
+            }
+            Assert.assertEquals(length, out.length());
+        } finally {
+            out.delete();
+            saved.delete();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+import bool_exp.ASTNode;
+
+/*
+ * Brute force: scans the assignments in blocks of BitSlicedEvaluator.BLOCK
+ * until one satisfies the expression. Fastest for a handful of variables.
+ */
+public class EnumerationEngine implements SatEngine {
+
+    private final ASTNode root;
+    private final VariableOrder order;
+
+    public EnumerationEngine(ASTNode root, VariableOrder order) {
+        this.root = root;
+        this.order = order;
+    }
+
+    public String name() {
+        return "enumeration";
+    }
+
+    public SolveResult solve(CancellationToken token) {
+        if (order.size() > VariableOrder.MAX_VARIABLES) {
+            return SolveResult.unknown(name());
+        }
+        BitSlicedEvaluator evaluator = new BitSlicedEvaluator(root, order);
+        long total = order.assignments();
+        long[] block = new long[BitSlicedEvaluator.WIDTH];
+        for (long base = 0; base < total; base += BitSlicedEvaluator.BLOCK) {
+            if (token.isCancelled()) {
+                return SolveResult.unknown(name());
+            }
+            evaluator.evalBlock(base, block);
+            for (int w = 0; w < block.length; w++) {
+                if (block[w] == 0) {
+                    continue;
+                }
+                long bits = base + 64 * w
+                        + Long.numberOfTrailingZeros(block[w]);
+                if (bits >= total) {
+                    break;
+                }
+                boolean[] model = new boolean[order.size()];
+                for (int id = 0; id < model.length; id++) {
+                    model[id] = order.value(bits, id);
+                }
+                return SolveResult.sat(model, name());
+            }
+        }
+        return SolveResult.unsat(name());
+    }
+}
@@ -0,0 +1,143 @@
+import java.util.Random;
+
+import bool_exp.ASTNode;
+
+/*
+ * Decides whether two expressions are equivalent, or whether the first
+ * implies the second, over the union of their variables.
+ *
+ * Random simulation runs first: every variable gets a random 64 bit word
+ * and both expressions are evaluated on all 64 patterns at once with long
+ * operations. Expressions that differ on many assignments are told apart
+ * this way almost immediately. Only when SIMULATION_ROUNDS of that find
+ * nothing is the miter, the expression that holds exactly where the two
+ * disagree, handed to the clause learning solver, which either finds a
+ * distinguishing assignment or proves there is none.
+ */
+public class EquivalenceChecker {
+
+    // Rounds of 64 random patterns tried before the complete check
+    public static final int SIMULATION_ROUNDS = 256;
+
+    private final ASTNode first;
+    private final ASTNode second;
+    private final VariableOrder order;
+    // Both expressions under one && node, indexed over the shared table
+    private final ExpressionIndex pair;
+    private final Random random;
+
+    public EquivalenceChecker(ASTNode first, ASTNode second, long seed) {
+        this.first = first;
+        this.second = second;
+        this.pair = ExpressionIndex.of(ASTNode.createAndNode(first, second));
+        this.order = pair.order();
+        this.random = new Random(seed);
+    }
+
+    // The shared variable table
+    public VariableOrder order() {
+        return order;
+    }
+
+    // Returns an assignment by variable id under which the expressions
+    // disagree (first true and second false, for implication), or null
+    // when there is none
+    public boolean[] counterexample(boolean implication,
+            CancellationToken token) {
+        boolean[] found = simulate(implication, token);
+        if (found != null) {
+            return found;
+        }
+        ASTNode notSecond = ASTNode.createNotNode(second);
+        ASTNode miter = ASTNode.createAndNode(first, notSecond);
+        if (!implication) {
+            miter = ASTNode.createOrNode(miter, ASTNode.createAndNode(
+                    ASTNode.createNotNode(first), second));
+        }
+        CnfPreprocessor pre = CnfPreprocessor.run(
+                CnfFormula.of(miter, order), false);
+        if (pre.isUnsat()) {
+            return null;
+        }
+        CdclSolver solver = CdclSolver.of(pre.formula());
+        solver.setToken(token);
+        if (!solver.solve()) {
+            return null;
+        }
+        boolean[] values = new boolean[solver.variables()];
+        for (int v = 1; v <= values.length; v++) {
+            values[v - 1] = solver.modelValue(v);
+        }
+        pre.extend(values);
+        boolean[] model = new boolean[order.size()];
+        System.arraycopy(values, 0, model, 0, model.length);
+        return model;
+    }
+
+    // Returns the values of the first and the second expression under an
+    // assignment by variable id. Runs over the shared postorder, so it
+    // takes any depth of expression and any number of variables.
+    public boolean[] values(boolean[] model) {
+        boolean[] values = new boolean[pair.size()];
+        for (int i = 0; i < values.length; i++) {
+            ASTNode node = pair.node(i);
+            if (node.isId()) {
+                values[i] = model[pair.variable(i)];
+            } else if (node.isNot()) {
+                values[i] = !values[pair.left(i)];
+            } else if (node.isAnd()) {
+                values[i] = values[pair.left(i)] && values[pair.right(i)];
+            } else {
+                values[i] = values[pair.left(i)] || values[pair.right(i)];
+            }
+        }
+        int top = values.length - 1;
+        return new boolean[] { values[pair.left(top)],
+                values[pair.right(top)] };
+    }
+
+    // Evaluates both expressions on random patterns, returning the first
+    // distinguishing one found
+    private boolean[] simulate(boolean implication, CancellationToken token) {
+        long[] values = new long[pair.size()];
+        long[] words = new long[order.size()];
+        int a = pair.left(pair.size() - 1);
+        int b = pair.right(pair.size() - 1);
+        for (int round = 0; round < SIMULATION_ROUNDS; round++) {
+            token.check();
+            for (int id = 0; id < words.length; id++) {
+                words[id] = random.nextLong();
+            }
+            eval(words, values);
+            long x = values[a];
+            long y = values[b];
+            long differ = implication ? x & ~y : x ^ y;
+            if (differ != 0) {
+                int bit = Long.numberOfTrailingZeros(differ);
+                boolean[] model = new boolean[words.length];
+                for (int id = 0; id < words.length; id++) {
+                    model[id] = ((words[id] >>> bit) & 1) != 0;
+                }
+                return model;
+            }
+        }
+        return null;
+    }
+
+    // Fills in the value of every node of the pair on each of the 64
+    // patterns
+    private void eval(long[] words, long[] values) {
+        for (int i = 0; i < values.length; i++) {
+            ASTNode node = pair.node(i);
+            if (node.isId()) {
+                values[i] = words[pair.variable(i)];
+            } else if (node.isNot()) {
+                values[i] = ~values[pair.left(i)];
+            } else if (node.isAnd()) {
+                values[i] = values[pair.left(i)] & values[pair.right(i)];
+            } else {
+                values[i] = values[pair.left(i)] | values[pair.right(i)];
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import bool_exp.ASTNode;
+import bool_exp.BoolSatParser;
+
+// Junit testing of --equiv and --implies
+public class EquivalenceCheckerTest {
+    // Evaluates an expression under a model over the checker's variables
+    private boolean eval(String expression, EquivalenceChecker checker,
+            boolean[] model) {
+        VariableOrder order = checker.order();
+        long bits = 0;
+        for (int id = 0; id < order.size(); id++) {
+            if (model[id]) {
+                bits = bits | (1L << order.shift(id));
+            }
+        }
+        return new InterpretedEvaluator(BoolSatParser.parse(expression),
+                order).eval(bits);
+    }
+
+    // Checks the answer for a pair, and that a counterexample really
+    // tells the expressions apart
+    private void check(String first, String second, boolean implication,
+            boolean holds) {
+        EquivalenceChecker checker = new EquivalenceChecker(
+                BoolSatParser.parse(first), BoolSatParser.parse(second), 41);
+        boolean[] model = checker.counterexample(implication,
+                CancellationToken.NONE);
+        Assert.assertEquals(holds, model == null);
+        if (model != null) {
+            boolean x = eval(first, checker, model);
+            boolean y = eval(second, checker, model);
+            if (implication) {
+                Assert.assertTrue(x && !y);
+            } else {
+                Assert.assertNotEquals(x, y);
+            }
+        }
+    }
+
+    // Tests equivalent and different pairs, including ones over different
+    // variables
+    @Test
+    public void testEquivalence() {
+        check("!(a && b)", "!a || !b", false, true);
+        check("a && (b || c)", "(a && b) || (a && c)", false, true);
+        check("a || (b && !b)", "a", false, true);
+        check("a || b", "a && b", false, false);
+        check("a", "a && c", false, false);
+    }
+
+    // Tests implications that hold and ones that do not
+    @Test
+    public void testImplication() {
+        check("a && b", "a || c", true, true);
+        check("!a && (a || b)", "b", true, true);
+        check("a || c", "a && b", true, false);
+        check("a", "a && c", true, false);
+        // The other way round from the last one holds
+        check("a && c", "a", true, true);
+    }
+
+    // Tests pairs that random simulation cannot settle, so the clause
+    // learning check has to prove them equivalent or find the single
+    // assignment that differs
+    @Test
+    public void testBeyondSimulation() {
+        StringBuilder all = new StringBuilder("x0");
+        StringBuilder none = new StringBuilder("!x0");
+        for (int i = 1; i < 40; i++) {
+            all.append(" && x").append(i);
+            none.append(" || !x").append(i);
+        }
+        check("!(" + all + ")", none.toString(), false, true);
+        check("(" + all + ") || y", "y", false, false);
+        check("(" + all + ") || y", "y", true, false);
+        check("y", "(" + all + ") || y", true, true);
+
+        // Randomly rewritten copies of the same expression
+        Random random = new Random(410);
+        for (int round = 0; round < 30; round++) {
+            StringBuilder first = new StringBuilder("(v0 || v1)");
+            StringBuilder second = new StringBuilder("!(!v0 && !v1)");
+            for (int i = 2; i < 30; i++) {
+                boolean and = random.nextBoolean();
+                first.insert(0, "(").append(and ? " && v" : " || v")
+                        .append(i).append(")");
+                second.insert(0, "!(!(").append(and ? ") || !v" : ") && !v")
+                        .append(i).append(")");
+            }
+            check(first.toString(), second.toString(), false, true);
+        }
+    }
+
+    // Tests a chain far deeper than the call stack allows, and that the
+    // values reported with its counterexample are the evaluated ones
+    @Test
+    public void testDeepChain() {
+        StringBuilder chain = new StringBuilder("a");
+        for (int i = 0; i < 200000; i++) {
+            chain.append(" && a");
+        }
+        chain.append(" && !b");
+        check(chain.toString(), "a && b", false, false);
+        EquivalenceChecker checker = new EquivalenceChecker(
+                BoolSatParser.parse(chain.toString()),
+                BoolSatParser.parse("a && b"), 41);
+        boolean[] model = checker.counterexample(false,
+                CancellationToken.NONE);
+        // a is true in every counterexample, and then b decides both sides
+        Assert.assertTrue(model[0]);
+        Assert.assertArrayEquals(new boolean[] { !model[1], model[1] },
+                checker.values(model));
+    }
+}
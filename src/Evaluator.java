@@ -0,0 +1,8 @@
+/*
+ * Evaluates a fixed expression under one assignment, packed into a long as
+ * described by VariableOrder.
+ */
+public interface Evaluator {
+
+    boolean eval(long bits);
+}
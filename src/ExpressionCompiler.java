@@ -0,0 +1,204 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import bool_exp.ASTNode;
+
+/*
+ * Compiles an expression into a freshly generated JVM class implementing
+ * Evaluator.
+ *
+ * The generated eval(long) first unpacks every variable into its own int
+ * local and then evaluates the tree in postorder with iand/ior/ixor, so the
+ * method body is straight-line code with no branches at all. That lets
+ * HotSpot inline it into the enumeration loop and keep the whole formula in
+ * registers. The class file is written by hand (version 52, which needs no
+ * stack map frames for branch-free code) and defined in a private class
+ * loader, so there are no dependencies outside the JDK.
+ */
+public class ExpressionCompiler {
+
+    // The JVM refuses methods whose bytecode is longer than this
+    private static final int MAX_CODE_LENGTH = 65535;
+
+    // First local variable slot after "this" and the long argument
+    private static final int FIRST_LOCAL = 3;
+
+    private static final AtomicInteger classCount = new AtomicInteger();
+
+    // Opcodes used by the generated code
+    private static final int ICONST_1 = 0x04, BIPUSH = 0x10, ILOAD = 0x15,
+            LLOAD_1 = 0x1F, ALOAD_0 = 0x2A, ISTORE = 0x36, IAND = 0x7E,
+            LUSHR = 0x7D, IOR = 0x80, IXOR = 0x82, L2I = 0x88,
+            IRETURN = 0xAC, RETURN = 0xB1, INVOKESPECIAL = 0xB7;
+
+    // Returns a compiled evaluator for the expression, throwing an
+    // IllegalArgumentException when it has too many variables or its code
+    // would not fit in a single method
+    public static Evaluator compile(ASTNode root, VariableOrder order) {
+        return compile(ExpressionIndex.of(root, order));
+    }
+
+    // Compiles an indexed expression over the index's variable order
+    public static Evaluator compile(ExpressionIndex index) {
+        VariableOrder order = index.order();
+        if (order.size() > 64) {
+            throw new IllegalArgumentException(
+                    "too many variables to compile: " + order.size());
+        }
+        String name = "CompiledExpression" + classCount.incrementAndGet();
+        byte[] classFile = writeClass(name, evalCode(index),
+                order.size());
+        try {
+            Class<?> type = new Loader().define(name, classFile);
+            return (Evaluator) type.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("generated class is unusable", e);
+        }
+    }
+
+    // Holds the body of eval(long) along with its operand stack depth
+    private static class Code {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int depth = 0;
+        int maxStack = 0;
+
+        void op(int opcode, int stackChange) {
+            bytes.write(opcode);
+            depth = depth + stackChange;
+            maxStack = Math.max(maxStack, depth);
+        }
+
+        void operand(int value) {
+            bytes.write(value);
+        }
+    }
+
+    // Emits the straight-line body of eval(long)
+    private static Code evalCode(ExpressionIndex index) {
+        VariableOrder order = index.order();
+        Code code = new Code();
+        // Prologue: local[3 + id] = (int) (bits >>> shift) & 1
+        for (int id = 0; id < order.size(); id++) {
+            code.op(LLOAD_1, 2);
+            if (order.shift(id) > 0) {
+                code.op(BIPUSH, 1);
+                code.operand(order.shift(id));
+                code.op(LUSHR, -1);
+            }
+            code.op(L2I, -1);
+            code.op(ICONST_1, 1);
+            code.op(IAND, -1);
+            code.op(ISTORE, -1);
+            code.operand(FIRST_LOCAL + id);
+        }
+        for (int i = 0; i < index.size(); i++) {
+            ASTNode node = index.node(i);
+            if (node.isAnd()) {
+                code.op(IAND, -1);
+            } else if (node.isOr()) {
+                code.op(IOR, -1);
+            } else if (node.isNot()) {
+                code.op(ICONST_1, 1);
+                code.op(IXOR, -1);
+            } else {
+                code.op(ILOAD, 1);
+                code.operand(FIRST_LOCAL + index.variable(i));
+            }
+            if (code.bytes.size() > MAX_CODE_LENGTH) {
+                throw new IllegalArgumentException(
+                        "expression too large to compile");
+            }
+        }
+        code.op(IRETURN, -1);
+        return code;
+    }
+
+    // Writes the class file: a no-argument constructor and eval(long)
+    private static byte[] writeClass(String name, Code eval, int variables) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(52);
+            // Constant pool, entries 1 to 13
+            out.writeShort(14);
+            utf8(out, name);                       // 1
+            classRef(out, 1);                      // 2 this class
+            utf8(out, "java/lang/Object");         // 3
+            classRef(out, 3);                      // 4 super class
+            utf8(out, "Evaluator");                // 5
+            classRef(out, 5);                      // 6 interface
+            utf8(out, "<init>");                   // 7
+            utf8(out, "()V");                      // 8
+            out.writeByte(12);                     // 9 NameAndType
+            out.writeShort(7);
+            out.writeShort(8);
+            out.writeByte(10);                     // 10 Object.<init>
+            out.writeShort(4);
+            out.writeShort(9);
+            utf8(out, "eval");                     // 11
+            utf8(out, "(J)Z");                     // 12
+            utf8(out, "Code");                     // 13
+            // public final super class, one interface, no fields
+            out.writeShort(0x0031);
+            out.writeShort(2);
+            out.writeShort(4);
+            out.writeShort(1);
+            out.writeShort(6);
+            out.writeShort(0);
+            out.writeShort(2);
+            byte[] init = { (byte) ALOAD_0, (byte) INVOKESPECIAL, 0, 10,
+                    (byte) RETURN };
+            method(out, 7, 8, 1, 1, init);
+            method(out, 11, 12, eval.maxStack, FIRST_LOCAL + variables,
+                    eval.bytes.toByteArray());
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void utf8(DataOutputStream out, String value)
+            throws IOException {
+        out.writeByte(1);
+        out.writeUTF(value);
+    }
+
+    private static void classRef(DataOutputStream out, int nameIndex)
+            throws IOException {
+        out.writeByte(7);
+        out.writeShort(nameIndex);
+    }
+
+    // Writes a public method with a single Code attribute
+    private static void method(DataOutputStream out, int name, int descriptor,
+            int maxStack, int maxLocals, byte[] code) throws IOException {
+        out.writeShort(0x0001);
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(1);
+        out.writeShort(13);
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+    // Each generated class gets its own loader so it can be unloaded again
+    private static class Loader extends ClassLoader {
+        Loader() {
+            super(ExpressionCompiler.class.getClassLoader());
+        }
+
+        Class<?> define(String name, byte[] classFile) {
+            return defineClass(name, classFile, 0, classFile.length);
+        }
+    }
+}
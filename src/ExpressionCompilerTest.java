@@ -0,0 +1,55 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import bool_exp.ASTNode;
+import bool_exp.BoolSatParser;
+
+// Junit testing of the bytecode compiled evaluator
+public class ExpressionCompilerTest {
+    // Checks the compiled class against the tree walking evaluator on
+    // every assignment
+    private void assertSameAsInterpreter(String expression) {
+        ASTNode root = BoolSatParser.parse(expression);
+        VariableOrder order = VariableOrder.of(root);
+        Evaluator compiled = ExpressionCompiler.compile(root, order);
+        Evaluator interpreted = new InterpretedEvaluator(root, order);
+        for (long bits = 0; bits < order.assignments(); bits++) {
+            Assert.assertEquals(interpreted.eval(bits), compiled.eval(bits));
+        }
+    }
+
+    // Tests each operator and their combinations
+    @Test
+    public void testOperators() {
+        assertSameAsInterpreter("a");
+        assertSameAsInterpreter("!a");
+        assertSameAsInterpreter("a && !a");
+        assertSameAsInterpreter("a || b && c");
+        assertSameAsInterpreter("!(a || !b) && (c || !(!d))");
+        assertSameAsInterpreter("(var0 || !var1 || !var2) && "
+                + "(var3 || !var2 || !var4)");
+    }
+
+    // Tests that sorted order maps to the most significant bit first
+    @Test
+    public void testBitOrder() {
+        ASTNode root = BoolSatParser.parse("b && !a");
+        Evaluator compiled = ExpressionCompiler.compile(root,
+                VariableOrder.of(root));
+        // a is variable 0, so it is the high bit
+        Assert.assertTrue(compiled.eval(1L));
+        Assert.assertFalse(compiled.eval(3L));
+        Assert.assertFalse(compiled.eval(2L));
+    }
+
+    // Tests that expressions too big for one method are rejected
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooLarge() {
+        // A balanced tree of 2^15 leaves needs about 3 bytes per leaf
+        ASTNode root = ASTNode.createIdNode("a");
+        for (int i = 0; i < 15; i++) {
+            root = ASTNode.createAndNode(root, root);
+        }
+        ExpressionCompiler.compile(root, VariableOrder.of(root));
+    }
+}
@@ -0,0 +1,226 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+
+import bool_exp.ASTNode;
+
+/*
+ * What the evaluators and engines need to know about the shape of an
+ * expression, gathered in one iterative walk over the tree.
+ *
+ * The nodes are numbered in postorder, first operands first, so every node
+ * comes after its operands and the root is last. For each position the index
+ * keeps the positions of the operands and, for identifiers, the variable id,
+ * which is what the flat evaluators run on. Alongside come the variable
+ * table (sorted, unless an order is given), the positions at which each
+ * variable occurs, node counts by type, the depth of the tree, and the
+ * largest number of operand values alive at once when the postorder is run
+ * on a stack. The set of variables below each node is derived from the
+ * postorder on first use.
+ */
+public class ExpressionIndex {
+
+    private final ASTNode root;
+    private final VariableOrder order;
+    private final ASTNode[] nodes;
+    private final int[] left;
+    private final int[] right;
+    private final int[] variable;
+    private final int[][] occurrences;
+    private int ands = 0, ors = 0, nots = 0, ids = 0;
+    private int depth = 0;
+    private int stackDepth = 0;
+    private BitSet[] support;
+
+    // Indexes an expression, numbering its variables in sorted order
+    public static ExpressionIndex of(ASTNode root) {
+        return new ExpressionIndex(root, null);
+    }
+
+    // Indexes an expression over an existing variable table, which must
+    // contain all of its variables
+    public static ExpressionIndex of(ASTNode root, VariableOrder order) {
+        return new ExpressionIndex(root, order);
+    }
+
+    private ExpressionIndex(ASTNode root, VariableOrder given) {
+        this.root = root;
+        ArrayList<ASTNode> list = new ArrayList<ASTNode>();
+        ArrayList<Integer> lefts = new ArrayList<Integer>();
+        ArrayList<Integer> rights = new ArrayList<Integer>();
+        HashSet<String> names = new HashSet<String>();
+        // Pending nodes, their depth and whether their operands are done
+        ArrayList<ASTNode> pending = new ArrayList<ASTNode>();
+        int[] pendingDepth = new int[16];
+        boolean[] expanded = new boolean[16];
+        // Positions of finished operands not yet used by their parent
+        int[] values = new int[16];
+        int valueCount = 0;
+        pending.add(root);
+        while (!pending.isEmpty()) {
+            int top = pending.size() - 1;
+            ASTNode node = pending.get(top);
+            if (!expanded[top] && !node.isId()) {
+                expanded[top] = true;
+                if (pendingDepth.length < top + 3) {
+                    pendingDepth = Arrays.copyOf(pendingDepth, 2 * top + 3);
+                    expanded = Arrays.copyOf(expanded, 2 * top + 3);
+                }
+                if (node.child2 != null) {
+                    pending.add(node.child2);
+                    pendingDepth[top + 1] = pendingDepth[top] + 1;
+                    expanded[top + 1] = false;
+                }
+                pending.add(node.child1);
+                pendingDepth[pending.size() - 1] = pendingDepth[top] + 1;
+                expanded[pending.size() - 1] = false;
+                continue;
+            }
+            pending.remove(top);
+            depth = Math.max(depth, pendingDepth[top]);
+            int position = list.size();
+            list.add(node);
+            int a = -1, b = -1;
+            if (node.isId()) {
+                ids = ids + 1;
+                names.add(node.getId());
+            } else if (node.isNot()) {
+                nots = nots + 1;
+                a = values[valueCount - 1];
+                valueCount = valueCount - 1;
+            } else {
+                if (node.isAnd()) {
+                    ands = ands + 1;
+                } else {
+                    ors = ors + 1;
+                }
+                a = values[valueCount - 2];
+                b = values[valueCount - 1];
+                valueCount = valueCount - 2;
+            }
+            lefts.add(a);
+            rights.add(b);
+            if (valueCount == values.length) {
+                values = Arrays.copyOf(values, 2 * valueCount);
+            }
+            values[valueCount] = position;
+            valueCount = valueCount + 1;
+            stackDepth = Math.max(stackDepth, valueCount);
+        }
+
+        if (given == null) {
+            ArrayList<String> sorted = new ArrayList<String>(names);
+            Collections.sort(sorted);
+            given = new VariableOrder(sorted);
+        }
+        this.order = given;
+        nodes = list.toArray(new ASTNode[list.size()]);
+        left = new int[nodes.length];
+        right = new int[nodes.length];
+        variable = new int[nodes.length];
+        int[] perVariable = new int[order.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            left[i] = lefts.get(i);
+            right[i] = rights.get(i);
+            variable[i] = nodes[i].isId() ? order.id(nodes[i].getId()) : -1;
+            if (variable[i] >= 0) {
+                perVariable[variable[i]]++;
+            }
+        }
+        occurrences = new int[order.size()][];
+        for (int id = 0; id < occurrences.length; id++) {
+            occurrences[id] = new int[perVariable[id]];
+            perVariable[id] = 0;
+        }
+        for (int i = 0; i < nodes.length; i++) {
+            if (variable[i] >= 0) {
+                occurrences[variable[i]][perVariable[variable[i]]++] = i;
+            }
+        }
+    }
+
+    public ASTNode root() {
+        return root;
+    }
+
+    public VariableOrder order() {
+        return order;
+    }
+
+    // Number of nodes, which is also one past the position of the root
+    public int size() {
+        return nodes.length;
+    }
+
+    public ASTNode node(int position) {
+        return nodes[position];
+    }
+
+    // Position of the first operand, or -1 for identifiers
+    public int left(int position) {
+        return left[position];
+    }
+
+    // Position of the second operand, or -1 for identifiers and !
+    public int right(int position) {
+        return right[position];
+    }
+
+    // Variable id of an identifier node, or -1 for operators
+    public int variable(int position) {
+        return variable[position];
+    }
+
+    // Positions of the identifier nodes naming a variable
+    public int[] occurrences(int id) {
+        return occurrences[id];
+    }
+
+    public int ands() {
+        return ands;
+    }
+
+    public int ors() {
+        return ors;
+    }
+
+    public int nots() {
+        return nots;
+    }
+
+    public int ids() {
+        return ids;
+    }
+
+    // Length of the longest path from the root to an identifier, in edges
+    public int depth() {
+        return depth;
+    }
+
+    // Operand values alive at once when the postorder runs on a stack
+    public int stackDepth() {
+        return stackDepth;
+    }
+
+    // The variable ids occurring below a node, itself included
+    public BitSet support(int position) {
+        if (support == null) {
+            support = new BitSet[nodes.length];
+            for (int i = 0; i < nodes.length; i++) {
+                BitSet set = new BitSet(order.size());
+                if (variable[i] >= 0) {
+                    set.set(variable[i]);
+                } else {
+                    set.or(support[left[i]]);
+                    if (right[i] >= 0) {
+                        set.or(support[right[i]]);
+                    }
+                }
+                support[i] = set;
+            }
+        }
+        return support[position];
+    }
+}
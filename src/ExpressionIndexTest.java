@@ -0,0 +1,51 @@
+import java.util.BitSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import bool_exp.ASTNode;
+import bool_exp.BoolSatParser;
+
+// Junit testing of the single pass expression index
+public class ExpressionIndexTest {
+    // Tests the tables gathered for a small expression
+    @Test
+    public void testSmallExpression() {
+        ASTNode root = BoolSatParser.parse("(b || !a) && (a || c) && b");
+        ExpressionIndex index = ExpressionIndex.of(root);
+        Assert.assertEquals(3, index.order().size());
+        Assert.assertEquals("a", index.order().name(0));
+        Assert.assertEquals(2, index.ands());
+        Assert.assertEquals(2, index.ors());
+        Assert.assertEquals(1, index.nots());
+        Assert.assertEquals(5, index.ids());
+        Assert.assertEquals(10, index.size());
+        Assert.assertSame(root, index.node(index.size() - 1));
+        Assert.assertEquals(2, index.occurrences(0).length);
+        Assert.assertEquals(2, index.occurrences(1).length);
+        for (int position : index.occurrences(1)) {
+            Assert.assertEquals("b", index.node(position).getId());
+        }
+        BitSet all = new BitSet();
+        all.set(0, 3);
+        Assert.assertEquals(all, index.support(index.size() - 1));
+        BitSet first = index.support(index.left(index.left(index.size() - 1)));
+        Assert.assertFalse(first.get(2));
+    }
+
+    // Tests that a chain far deeper than the call stack allows is indexed
+    @Test
+    public void testDeepChain() {
+        ASTNode root = ASTNode.createIdNode("x0");
+        for (int i = 1; i < 200000; i++) {
+            root = ASTNode.createAndNode(ASTNode.createIdNode("x" + (i % 50)),
+                    root);
+        }
+        ExpressionIndex index = ExpressionIndex.of(root);
+        Assert.assertEquals(50, index.order().size());
+        Assert.assertEquals(199999, index.depth());
+        Assert.assertEquals(200000, index.stackDepth());
+        Assert.assertTrue(new InterpretedEvaluator(index).eval(-1L));
+        Assert.assertFalse(new InterpretedEvaluator(index).eval(0));
+    }
+}
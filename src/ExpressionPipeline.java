@@ -0,0 +1,254 @@
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import bool_exp.ASTNode;
+import bool_exp.BoolSatParser;
+
+/*
+ * Lists every line of an input file as an expression of its own, for
+ * --all-lines, with reading, parsing and solving overlapped.
+ *
+ * A reader thread feeds lines to a parser thread, which feeds parsed and
+ * indexed expressions to a pool of solver threads. The stages are joined by
+ * bounded queues, so a fast stage blocks instead of running ahead. Each
+ * solver renders the whole listing of its line into memory, and the calling
+ * thread writes those listings out in input order, holding back the ones
+ * that finish early. Solvers stay at most WINDOW_PER_THREAD lines per thread
+ * ahead of the writer, which bounds that memory.
+ *
+ * Listings of more than MAX_BUFFERED_VARIABLES variables could be too large
+ * to hold, so they are not rendered by a solver but streamed by the writer
+ * itself when their turn comes. Blank lines are skipped, and a line with
+ * too many variables to enumerate gets an ERROR line in place of its
+ * listing.
+ */
+public class ExpressionPipeline {
+
+    // Capacity of the queues between the stages
+    public static final int QUEUE = 1024;
+
+    // Lines each solver thread may finish ahead of the writer
+    public static final int WINDOW_PER_THREAD = 64;
+
+    // Largest listing, in variables, that a solver renders into memory
+    public static final int MAX_BUFFERED_VARIABLES = 12;
+
+    // One line on its way through the stages
+    private static class Job {
+        final long seq;
+        final String command;
+        ExpressionIndex index;
+        byte[] output;
+
+        Job(long seq, String command) {
+            this.seq = seq;
+            this.command = command;
+        }
+    }
+
+    // Marks the end of the input on a queue
+    private static final Job END = new Job(-1, null);
+
+    private final Options options;
+    private final int threads;
+    private final ResultCache cache;
+    private final BlockingQueue<Job> lines =
+            new ArrayBlockingQueue<Job>(QUEUE);
+    private final BlockingQueue<Job> parsed =
+            new ArrayBlockingQueue<Job>(QUEUE);
+    // Jobs finished by the solvers, by sequence number
+    private final HashMap<Long, Job> finished = new HashMap<Long, Job>();
+    private long written = 0;
+    private long total = -1;
+    private Throwable failure;
+
+    // Takes the writer format, DEBUG, --jit and --cache from the options
+    public ExpressionPipeline(Options options, int threads) {
+        this.options = options;
+        this.threads = threads;
+        this.cache = options.has("cache")
+                ? new ResultCache(ResultCache.DEFAULT_CAPACITY,
+                        new File(options.get("cache", null)))
+                : null;
+    }
+
+    // Lists every line of in to out in order and returns the number of
+    // expressions listed
+    public long run(final BufferedReader in, OutputStream out)
+            throws IOException {
+        Thread reader = daemon(() -> read(in));
+        Thread parser = daemon(() -> parse());
+        Thread[] solvers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            solvers[i] = daemon(() -> solve());
+        }
+        try {
+            for (long seq = 0;; seq++) {
+                Job job;
+                synchronized (this) {
+                    while (!finished.containsKey(seq)
+                            && (total < 0 || seq < total)
+                            && failure == null) {
+                        wait();
+                    }
+                    if (failure != null) {
+                        throw new IOException("Pipeline failed: " + failure,
+                                failure);
+                    }
+                    if (seq == total) {
+                        break;
+                    }
+                    job = finished.remove(seq);
+                }
+                if (job.output != null) {
+                    out.write(job.output);
+                } else {
+                    list(job, out);
+                }
+                synchronized (this) {
+                    written = seq + 1;
+                    notifyAll();
+                }
+            }
+            out.flush();
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted");
+        } finally {
+            reader.interrupt();
+            parser.interrupt();
+            for (Thread solver : solvers) {
+                solver.interrupt();
+            }
+        }
+    }
+
+    // Starts a background thread for one stage
+    private Thread daemon(Runnable stage) {
+        Thread thread = new Thread(() -> {
+            try {
+                stage.run();
+            } catch (Throwable t) {
+                fail(t);
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    // Stage 1: numbers the non-blank lines and queues them
+    private void read(BufferedReader in) {
+        long seq = 0;
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                lines.put(new Job(seq, line));
+                seq = seq + 1;
+            }
+            synchronized (this) {
+                total = seq;
+                notifyAll();
+            }
+            lines.put(END);
+        } catch (IOException e) {
+            fail(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Stage 2: parses and indexes each line
+    private void parse() {
+        try {
+            while (true) {
+                Job job = lines.take();
+                if (job == END) {
+                    for (int i = 0; i < threads; i++) {
+                        parsed.put(END);
+                    }
+                    return;
+                }
+                ASTNode root = BoolSatParser.parse(job.command);
+                job.index = ExpressionIndex.of(root);
+                parsed.put(job);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Stage 3: renders the listings small enough to hold in memory
+    private void solve() {
+        try {
+            while (true) {
+                Job job = parsed.take();
+                if (job == END) {
+                    return;
+                }
+                synchronized (this) {
+                    while (job.seq >= written
+                            + (long) WINDOW_PER_THREAD * threads) {
+                        wait();
+                    }
+                }
+                if (job.index.order().size() <= MAX_BUFFERED_VARIABLES) {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    list(job, bytes);
+                    job.output = bytes.toByteArray();
+                }
+                synchronized (this) {
+                    finished.put(job.seq, job);
+                    notifyAll();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    // Writes the listing of one line, as a single-line run would
+    private void list(Job job, OutputStream out) throws IOException {
+        VariableOrder order = job.index.order();
+        if (order.size() > VariableOrder.MAX_VARIABLES) {
+            out.write(("input: " + job.command
+                    + "\nERROR: Too many variables to enumerate\n")
+                    .getBytes());
+            return;
+        }
+        Evaluator evaluator = options.has("jit")
+                ? PA4BoolSat.createEvaluator(job.index)
+                : new InterpretedEvaluator(job.index);
+        AssignmentWriter writer = PA4BoolSat.createWriter(options, order, out,
+                new Budget(0, 0, 0));
+        if (cache != null) {
+            PA4BoolSat.printCached(cache,
+                    CanonicalForm.hash(job.index.root(), order), evaluator,
+                    order, writer, options.isDebug(), CancellationToken.NONE,
+                    job.command);
+        } else {
+            PA4BoolSat.printIndexed(evaluator, order, writer,
+                    options.isDebug(), CancellationToken.NONE, job.command);
+        }
+    }
+
+    // Records the first failure of any stage and wakes the writer
+    private synchronized void fail(Throwable t) {
+        if (failure == null) {
+            failure = t;
+        }
+        notifyAll();
+    }
+}
@@ -0,0 +1,44 @@
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import bool_exp.BoolSatParser;
+
+// Junit testing of the pipelined multi-line mode
+public class ExpressionPipelineTest {
+    // Tests that the lines are listed in input order, exactly as they are
+    // listed one at a time, whichever solver finishes first
+    @Test
+    public void testMatchesSingleLines() throws Exception {
+        Random random = new Random(45);
+        StringBuilder input = new StringBuilder();
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        Options options = Options.parse(new String[] { "file" });
+        for (int line = 0; line < 400; line++) {
+            // Mostly small expressions, with some streamed by the writer
+            int vars = line % 50 == 0 ? 14 : 1 + random.nextInt(6);
+            StringBuilder expression = new StringBuilder("x0");
+            for (int i = 1; i < vars; i++) {
+                expression.append(random.nextBoolean() ? " || " : " && ")
+                        .append(random.nextBoolean() ? "!x" : "x").append(i);
+            }
+            input.append(expression).append(line % 97 == 0 ? "\n\n" : "\n");
+            ExpressionIndex index = ExpressionIndex.of(
+                    BoolSatParser.parse(expression.toString()));
+            PA4BoolSat.printIndexed(new InterpretedEvaluator(index),
+                    index.order(), new TextAssignmentWriter(index.order(),
+                            false, expected), false, CancellationToken.NONE,
+                    expression.toString());
+        }
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        long count = new ExpressionPipeline(options, 3).run(
+                new BufferedReader(new StringReader(input.toString())),
+                actual);
+        Assert.assertEquals(400, count);
+        Assert.assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+}
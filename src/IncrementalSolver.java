@@ -0,0 +1,116 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+
+import bool_exp.ASTNode;
+import bool_exp.BoolSatParser;
+
+/*
+ * Answers many related satisfiability questions about one expression.
+ *
+ * The expression is parsed and turned into clauses once. Each question is
+ * then a set of assumed variable values, organized in scopes: push opens a
+ * scope, assume adds a value to the innermost scope and pop drops the scope
+ * with everything assumed in it. Assumptions never become clauses, so what
+ * the solver learns stays valid for every later question. The last model is
+ * also kept, and a question whose assumptions it already satisfies is
+ * answered without searching at all.
+ *
+ * Example:
+ *     IncrementalSolver solver = IncrementalSolver.of("a && (b || !c)");
+ *     solver.push();
+ *     solver.assume("c", true);
+ *     solver.isSat();      // true, with b true
+ *     solver.assume("b", false);
+ *     solver.isSat();      // false
+ *     solver.pop();
+ */
+public class IncrementalSolver {
+
+    private final VariableOrder order;
+    private final CdclSolver solver;
+    private final ArrayList<Integer> assumptions = new ArrayList<Integer>();
+    private final ArrayDeque<Integer> scopes = new ArrayDeque<Integer>();
+    // Values of the expression variables in the last model, if any
+    private boolean[] model;
+
+    public IncrementalSolver(ASTNode root) {
+        order = VariableOrder.of(root);
+        solver = CdclSolver.of(CnfFormula.of(root, order));
+    }
+
+    // Parses an expression and prepares it for questions
+    public static IncrementalSolver of(String expression) {
+        return new IncrementalSolver(BoolSatParser.parse(expression));
+    }
+
+    public VariableOrder order() {
+        return order;
+    }
+
+    // Opens a new assumption scope
+    public void push() {
+        scopes.push(assumptions.size());
+    }
+
+    // Drops the innermost scope and its assumptions
+    public void pop() {
+        if (scopes.isEmpty()) {
+            throw new IllegalStateException("pop without a matching push");
+        }
+        int size = scopes.pop();
+        while (assumptions.size() > size) {
+            assumptions.remove(assumptions.size() - 1);
+        }
+    }
+
+    // Assumes a value for a variable until its scope is popped
+    public void assume(String name, boolean value) {
+        int id = order.id(name);
+        if (id < 0) {
+            throw new IllegalArgumentException("unknown variable " + name);
+        }
+        assumptions.add(value ? id + 1 : -(id + 1));
+    }
+
+    // Whether the expression can be true under the current assumptions
+    public boolean isSat() {
+        if (model != null && satisfiesAssumptions(model)) {
+            return true;
+        }
+        int[] assumed = new int[assumptions.size()];
+        for (int i = 0; i < assumed.length; i++) {
+            assumed[i] = assumptions.get(i);
+        }
+        if (!solver.solve(assumed)) {
+            return false;
+        }
+        model = new boolean[order.size()];
+        for (int id = 0; id < order.size(); id++) {
+            model[id] = solver.modelValue(id + 1);
+        }
+        return true;
+    }
+
+    // Returns the model behind the last true answer, by variable name
+    public Map<String, Boolean> model() {
+        if (model == null) {
+            throw new IllegalStateException("no satisfying assignment found");
+        }
+        TreeMap<String, Boolean> values = new TreeMap<String, Boolean>();
+        for (int id = 0; id < order.size(); id++) {
+            values.put(order.name(id), model[id]);
+        }
+        return values;
+    }
+
+    private boolean satisfiesAssumptions(boolean[] values) {
+        for (int lit : assumptions) {
+            if (values[Math.abs(lit) - 1] != lit > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,74 @@
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import bool_exp.ASTNode;
+import bool_exp.BoolSatParser;
+
+// Junit testing of the clause learning solver and its incremental front end
+public class IncrementalSolverTest {
+    // Tests every answer against the truth table of the expression
+    @Test
+    public void testAgainstTruthTable() {
+        Random random = new Random(210);
+        for (int round = 0; round < 200; round++) {
+            String expression = CnfFixtures.randomCnf(random, 8,
+                    20 + random.nextInt(20));
+            ASTNode root = BoolSatParser.parse(expression);
+            IncrementalSolver solver = new IncrementalSolver(root);
+            VariableOrder order = solver.order();
+            TruthTable table = TruthTable.of(
+                    new InterpretedEvaluator(root, order), order);
+            for (int query = 0; query < 5; query++) {
+                // Assumes one random value per variable with probability 1/2
+                long mask = 0;
+                long fixed = 0;
+                solver.push();
+                for (int id = 0; id < order.size(); id++) {
+                    if (random.nextBoolean()) {
+                        boolean value = random.nextBoolean();
+                        solver.assume(order.name(id), value);
+                        mask = mask | (1L << order.shift(id));
+                        fixed = fixed | (value ? 1L << order.shift(id) : 0);
+                    }
+                }
+                boolean expected = false;
+                for (long bits = 0; bits < order.assignments(); bits++) {
+                    if ((bits & mask) == fixed && table.eval(bits)) {
+                        expected = true;
+                    }
+                }
+                Assert.assertEquals(expected, solver.isSat());
+                solver.pop();
+            }
+        }
+    }
+
+    // Tests that popping a scope drops its assumptions
+    @Test
+    public void testPushPop() {
+        IncrementalSolver solver = IncrementalSolver.of("a && (b || !c)");
+        Assert.assertTrue(solver.isSat());
+        solver.push();
+        solver.assume("c", true);
+        Assert.assertTrue(solver.isSat());
+        Assert.assertTrue(solver.model().get("b"));
+        solver.push();
+        solver.assume("b", false);
+        Assert.assertFalse(solver.isSat());
+        solver.pop();
+        Assert.assertTrue(solver.isSat());
+        solver.pop();
+        solver.assume("a", false);
+        Assert.assertFalse(solver.isSat());
+    }
+
+    // Tests an unsatisfiable expression
+    @Test
+    public void testUnsat() {
+        Assert.assertFalse(IncrementalSolver.of("a && !a").isSat());
+        Assert.assertFalse(IncrementalSolver.of("(a || b) && !a && !b")
+                .isSat());
+    }
+}
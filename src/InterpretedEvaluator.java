@@ -0,0 +1,44 @@
+import bool_exp.ASTNode;
+
+/*
+ * Evaluator that runs the postorder of an ExpressionIndex, used when an
+ * expression cannot be compiled.
+ *
+ * Every node's value goes into a scratch array at its position, so no
+ * recursion is needed however deep the tree is. Each thread gets a scratch
+ * array of its own, allocated on its first call and reused after that, so
+ * the enumeration loops allocate nothing per assignment and instances stay
+ * safe to share between threads, as BulkEvaluator does.
+ */
+public class InterpretedEvaluator implements Evaluator {
+
+    private final ExpressionIndex index;
+    private final ThreadLocal<boolean[]> scratch;
+
+    public InterpretedEvaluator(ASTNode root, VariableOrder order) {
+        this(ExpressionIndex.of(root, order));
+    }
+
+    public InterpretedEvaluator(ExpressionIndex index) {
+        this.index = index;
+        this.scratch = ThreadLocal.withInitial(() -> new boolean[index.size()]);
+    }
+
+    public boolean eval(long bits) {
+        VariableOrder order = index.order();
+        boolean[] values = scratch.get();
+        for (int i = 0; i < values.length; i++) {
+            ASTNode node = index.node(i);
+            if (node.isAnd()) {
+                values[i] = values[index.left(i)] && values[index.right(i)];
+            } else if (node.isOr()) {
+                values[i] = values[index.left(i)] || values[index.right(i)];
+            } else if (node.isNot()) {
+                values[i] = !values[index.left(i)];
+            } else {
+                values[i] = order.value(bits, index.variable(i));
+            }
+        }
+        return values[values.length - 1];
+    }
+}
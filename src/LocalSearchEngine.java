@@ -0,0 +1,79 @@
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import bool_exp.ASTNode;
+
+/*
+ * Runs independent WalkSat walkers with different seeds, one per thread,
+ * over the preprocessed clauses of the expression. The first walker to find
+ * a model stops the rest. Local search itself can only ever answer SAT, so
+ * the result is UNSAT only when the preprocessor refutes the clauses before
+ * any walker starts; when every walker has used up its flip budget it is
+ * UNKNOWN.
+ */
+public class LocalSearchEngine implements SatEngine {
+
+    // Flips each walker makes before giving up
+    public static final long DEFAULT_FLIPS = 100000000L;
+
+    private final ASTNode root;
+    private final VariableOrder order;
+    private final int walkers;
+    private final long flips;
+
+    public LocalSearchEngine(ASTNode root, VariableOrder order, int walkers,
+            long flips) {
+        this.root = root;
+        this.order = order;
+        this.walkers = walkers;
+        this.flips = flips;
+    }
+
+    public String name() {
+        return "walksat";
+    }
+
+    public SolveResult solve(CancellationToken token) {
+        final CnfPreprocessor pre = CnfPreprocessor.run(
+                CnfFormula.of(root, order), false);
+        if (pre.isUnsat()) {
+            return SolveResult.unsat(name());
+        }
+        final CnfFormula cnf = pre.formula();
+        final CancellationToken race = new CancellationToken(token);
+        ExecutorService pool = Executors.newFixedThreadPool(walkers);
+        ExecutorCompletionService<boolean[]> done =
+                new ExecutorCompletionService<boolean[]>(pool);
+        for (int i = 0; i < walkers; i++) {
+            final long seed = i;
+            done.submit(() -> {
+                try {
+                    return new WalkSat(cnf, seed).solve(flips, race);
+                } catch (CancellationException e) {
+                    return null;
+                }
+            });
+        }
+        try {
+            for (int i = 0; i < walkers; i++) {
+                boolean[] values = done.take().get();
+                if (values != null) {
+                    return SolveResult.sat(Arrays.copyOf(pre.extend(values),
+                            order.size()), name());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            race.cancel();
+            pool.shutdown();
+        }
+        return SolveResult.unknown(name());
+    }
+}
@@ -0,0 +1,75 @@
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import bool_exp.ASTNode;
+import bool_exp.BoolSatParser;
+
+// Junit testing of WalkSat local search and the engine running its walkers
+public class LocalSearchEngineTest {
+    // Tests that walkers find models of satisfiable fixtures and never
+    // claim a model for unsatisfiable ones, as decided by clause learning
+    @Test
+    public void testAgreesWithCdcl() {
+        Random random = new Random(34);
+        int sat = 0;
+        for (int round = 0; round < 60; round++) {
+            String expression = CnfFixtures.randomCnf(random, 14,
+                    45 + random.nextInt(25));
+            ASTNode root = BoolSatParser.parse(expression);
+            VariableOrder order = VariableOrder.of(root);
+            SolveResult cdcl = new CdclEngine(root, order, 0)
+                    .solve(CancellationToken.NONE);
+            SolveResult walk = new LocalSearchEngine(root, order, 2, 1000000)
+                    .solve(CancellationToken.NONE);
+            if (cdcl.status == SolveResult.Status.SAT) {
+                CnfFixtures.assertAgrees(root, order, cdcl, walk);
+                sat = sat + 1;
+            } else {
+                Assert.assertNotEquals(SolveResult.Status.SAT, walk.status);
+            }
+        }
+        Assert.assertTrue(sat > 10 && sat < 50);
+    }
+
+    // Tests that an unsatisfiable fixture the preprocessor cannot refute
+    // runs out of flips with UNKNOWN
+    @Test
+    public void testUnsatIsUnknown() {
+        ASTNode root = BoolSatParser.parse(CnfFixtures.pigeonhole(5));
+        VariableOrder order = VariableOrder.of(root);
+        Assert.assertEquals(SolveResult.Status.UNKNOWN,
+                new LocalSearchEngine(root, order, 2, 20000)
+                        .solve(CancellationToken.NONE).status);
+    }
+
+    // Tests that clauses the preprocessor refutes on its own are answered
+    // UNSAT without any walk
+    @Test
+    public void testPreprocessorRefutes() {
+        ASTNode root = BoolSatParser.parse(
+                "(a || b) && (!a || b) && (a || !b) && (!a || !b)");
+        VariableOrder order = VariableOrder.of(root);
+        Assert.assertTrue(CnfPreprocessor.run(CnfFormula.of(root, order),
+                false).isUnsat());
+        Assert.assertEquals(SolveResult.Status.UNSAT,
+                new LocalSearchEngine(root, order, 1, 0)
+                        .solve(CancellationToken.NONE).status);
+    }
+
+    // Tests that a walker with a fixed seed makes the same walk
+    @Test
+    public void testSeedIsDeterministic() {
+        ASTNode root = BoolSatParser.parse(
+                CnfFixtures.randomCnf(new Random(5), 30, 110));
+        CnfFormula cnf = CnfFormula.of(root, VariableOrder.of(root));
+        WalkSat first = new WalkSat(cnf, 17);
+        WalkSat second = new WalkSat(cnf, 17);
+        boolean[] model = first.solve(100000, CancellationToken.NONE);
+        Assert.assertNotNull(model);
+        Assert.assertArrayEquals(model,
+                second.solve(100000, CancellationToken.NONE));
+        Assert.assertEquals(first.flips(), second.flips());
+    }
+}
@@ -0,0 +1,87 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+/*
+ * Command line options for PA4BoolSat.
+ *
+ * Positional arguments keep their original meaning: the expression file
+ * followed by an optional DEBUG marker. Anything starting with "--" is an
+ * option; options listed in VALUED take the next argument as their value,
+ * every other option is a plain on/off switch.
+ */
+public class Options {
+
+    // Options that consume the following argument as their value
+    private static final Set<String> VALUED = new HashSet<String>(
+            Arrays.asList("format", "out", "cache", "flips", "walkers",
+                    "eval", "range", "checkpoint", "shard", "port",
+                    "worker", "sample", "seed", "project", "equiv",
+                    "implies", "timeout", "max-assignments",
+                    "max-output-bytes", "threads", "bind"));
+
+    private final ArrayList<String> positional = new ArrayList<String>();
+    private final HashMap<String, String> named = new HashMap<String, String>();
+
+    // Splits the raw command line into positional arguments and options
+    public static Options parse(String[] args) {
+        Options options = new Options();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                options.positional.add(arg);
+                continue;
+            }
+            String name = arg.substring(2);
+            if (VALUED.contains(name)) {
+                if (i + 1 == args.length) {
+                    System.out.println("ERROR: Missing value for " + arg);
+                    System.exit(1);
+                }
+                i = i + 1;
+                options.named.put(name, args[i]);
+            } else {
+                options.named.put(name, "");
+            }
+        }
+        return options;
+    }
+
+    // Returns the positional arguments in the shape main used to receive them
+    public String[] positional() {
+        return positional.toArray(new String[positional.size()]);
+    }
+
+    // Whether DEBUG was given after the input file
+    public boolean isDebug() {
+        return positional.size() == 2;
+    }
+
+    // Whether an option was given at all
+    public boolean has(String name) {
+        return named.containsKey(name);
+    }
+
+    // Returns the value of an option, or the default when it is absent
+    public String get(String name, String fallback) {
+        String value = named.get(name);
+        return value == null ? fallback : value;
+    }
+
+    // Returns a numeric option, or the default when it is absent
+    public long getLong(String name, long fallback) {
+        String value = named.get(name);
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            System.out.println("ERROR: --" + name + " needs a number");
+            System.exit(1);
+            return fallback;
+        }
+    }
+}
@@ -1,11 +1,22 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
 import java.util.Scanner;
-import java.util.Set;
+import java.util.concurrent.CancellationException;
 
 import bool_exp.ASTNode;
 import bool_exp.BoolSatParser;
@@ -32,6 +43,85 @@ import bool_exp.BoolSatParser;
  * A debug mode is availabe for this program, input DEBUG on the second command
  * line and every enumeration of the given variables will be printed along with
  * whether they evaluated to true or false
+ *
+ * Options may be given anywhere on the command line:
+ * --jit            compiles the expression to bytecode and evaluates every
+ *                  assignment with the generated class instead of walking
+ *                  the tree
+ * --format FORMAT  "text" (the default) or "binary", a compact form described
+ *                  in BinaryAssignmentWriter
+ * --out FILE       writes the listing to FILE instead of stdout
+ * --cache DIR      answers repeated expressions from a result cache kept in
+ *                  DIR; expressions that differ only in parentheses,
+ *                  spacing or operand order share one entry
+ * --simd           evaluates 512 assignments at a time with bit-sliced
+ *                  long operations that the JIT compiles to vector code;
+ *                  it cannot be combined with --jit
+ * --portfolio      only decides SAT or UNSAT, racing several solving
+ *                  strategies on separate threads, and prints one
+ *                  satisfying assignment if there is one
+ * --walk           only looks for one satisfying assignment, by local
+ *                  search; prints UNKNOWN if none was found in time
+ * --flips N        flips each local search walker may make
+ * --walkers N      local search walkers to run in parallel, one per
+ *                  processor by default
+ * --eval FILE      evaluates the expression for each assignment in FILE,
+ *                  a CSV file with a header row of variable names or a
+ *                  binary listing, and prints true or false per row
+ * --range START:END
+ *                  lists only the assignments with indices START (default
+ *                  0) up to but not including END (default 2^n), where
+ *                  index bits follow the variables in sorted order
+ * --checkpoint FILE
+ *                  saves the progress of the listing written to --out in
+ *                  FILE every few seconds
+ * --resume         continues the listing from the --checkpoint FILE of a
+ *                  run that did not finish
+ * --shard N        splits the listing across N worker processes started on
+ *                  this machine, merging their output in order
+ * --port P         with --shard, accepts workers on port P; with --bind,
+ *                  --shard 0 uses outside workers only
+ * --bind ADDR      with --shard, listens on ADDR instead of the loopback
+ *                  address, so that workers on other hosts can connect; the
+ *                  workers must share the token in BOOLSAT_SHARD_TOKEN
+ * --worker HOST:PORT
+ *                  runs as a worker for the --shard run at HOST:PORT, with
+ *                  the token in BOOLSAT_SHARD_TOKEN; no input file is given
+ *                  in this case
+ * --preprocess     simplifies the clause form of the expression first and
+ *                  enumerates only the variables that are left, expanding
+ *                  each result back to the full assignments
+ * --sample N       prints N satisfying assignments drawn uniformly at random,
+ *                  with repetition, instead of the listing
+ * --seed S         seeds --sample so that runs can be repeated
+ * --project A,B,...
+ *                  lists only the distinct satisfying combinations of the
+ *                  named variables, whatever the others are; any number of
+ *                  other variables is allowed
+ * --equiv FILE     checks whether the expression in FILE is equivalent to
+ *                  the input expression, printing an assignment on which
+ *                  they differ if it is not
+ * --implies FILE   checks whether the input expression implies the one in
+ *                  FILE, printing an assignment that makes the input true
+ *                  and the other false if it does not
+ * --cubes          lists the satisfying assignments as cubes, where "-"
+ *                  stands for either value; CubeExpander turns the cubes
+ *                  back into the full listing
+ * --all-lines      lists every line of the input file as a separate
+ *                  expression, in the order of the lines; reading,
+ *                  parsing and solving of different lines overlap
+ * --threads N      solver threads for --all-lines, one per processor by
+ *                  default
+ * --timeout MS     stops after MS milliseconds
+ * --max-assignments N
+ *                  stops the listing after N assignments
+ * --max-output-bytes N
+ *                  stops the listing at the last whole line that fits in N
+ *                  bytes
+ *                  A listing stopped by one of these limits ends with
+ *                  "TRUNCATED: " and the limit; a run stopped before it
+ *                  knew whether the expression is satisfiable prints
+ *                  "UNKNOWN: " and the limit instead of SAT or UNSAT
  * 
  * In their respective cases, the ouput will look like
  * input: "given expression"
@@ -54,23 +144,116 @@ import bool_exp.BoolSatParser;
 
 public class PA4BoolSat {
 
+    // How often a checkpointed listing saves its progress
+    private static final long CHECKPOINT_MILLIS = 5000;
+    // Assignments between looks at the clock; a multiple of 64 so binary
+    // truth tables are flushed at whole words
+    private static final long CHECKPOINT_STRIDE = 1 << 16;
+
     // Method calls for each part of the program
     public static void main(String[] args) {
+        // Separates options from the file and DEBUG arguments
+        Options options = Options.parse(args);
+        args = options.positional();
+        // Starts the clock for --timeout
+        Budget budget = Budget.of(options);
+        if (options.has("worker")) {
+            try {
+                new ShardWorker(options.get("worker", null),
+                        System.getenv(ShardCoordinator.TOKEN_VARIABLE)).run();
+            } catch (IOException e) {
+                System.out.println("ERROR: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+        if (options.has("all-lines")) {
+            try {
+                runPipeline(options, budget, args[0]);
+            } catch (IOException e) {
+                System.out.println("ERROR: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
         // Creates the scanner from an input file
         Scanner in = openInfile(args[0]);
         // Collects the expression command
         String command = in.nextLine();
         // Creates a root node from a command
         ASTNode root = BoolSatParser.parse(command);
-        // Creates a hashset of all variables
-        Set<String> leafNodes = getAllLeafNodes(root);
-        // Initializes information holding structures
-        int[] sofar = new int[leafNodes.size()];
-        HashMap<String, Boolean> endMap = new HashMap<String, Boolean>();
-        // Edits endMap with enumerations of each variable being true or false
-        enumerate(sofar, leafNodes.size(), leafNodes, 0, endMap, root);
-        // Prints the enumerations and whether the expression is satisfiable
-        printAll(endMap, args, command);
+        // Indexes the expression once, numbering the variables in the order
+        // they are printed
+        ExpressionIndex index = ExpressionIndex.of(root);
+        try {
+            run(options, index, budget, command);
+        } catch (CancellationException e) {
+            try {
+                printStopped(options, budget, command);
+            } catch (IOException f) {
+                System.out.println("ERROR: " + f.getMessage());
+                System.exit(1);
+            }
+        }
+    }
+
+    // Runs the mode chosen by the options on the indexed expression
+    public static void run(Options options, ExpressionIndex index,
+            Budget budget, String command) {
+        ASTNode root = index.root();
+        VariableOrder order = index.order();
+        if (options.has("portfolio")) {
+            printDecision(PortfolioSolver.standard(root, order)
+                    .solve(budget), order, budget, command);
+            return;
+        }
+        if (options.has("equiv") || options.has("implies")) {
+            printComparison(options, root, budget, command);
+            return;
+        }
+        if (options.has("project")) {
+            try {
+                printProjected(options, root, order, budget, command);
+            } catch (IOException e) {
+                System.out.println("ERROR: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+        if (options.has("sample")) {
+            try {
+                printSamples(options, root, order, budget, command);
+            } catch (IOException e) {
+                System.out.println("ERROR: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+        if (options.has("walk")) {
+            int walkers = (int) options.getLong("walkers",
+                    Runtime.getRuntime().availableProcessors());
+            long flips = options.getLong("flips",
+                    LocalSearchEngine.DEFAULT_FLIPS);
+            printDecision(new LocalSearchEngine(root, order,
+                    Math.max(1, walkers), flips)
+                    .solve(budget), order, budget, command);
+            return;
+        }
+        if (order.size() > VariableOrder.MAX_VARIABLES) {
+            System.out.println("ERROR: Too many variables to enumerate");
+            System.exit(1);
+        }
+        // Prints whether the expression is satisfiable and the enumerations
+        try {
+            if (options.has("eval")) {
+                runBulk(options, index, budget, command);
+                return;
+            }
+            runIndexed(options, index, budget, command);
+        } catch (IOException e) {
+            System.out.println("ERROR: " + e.getMessage());
+            System.exit(1);
+        }
     }
 
     // Returns a scanner for a given file
@@ -88,142 +271,717 @@ public class PA4BoolSat {
         return in;
     }
 
-    // Recusrively returns the variables at leaf nodes in a hashset from a given
-    // ASTNode
-    public static Set<String> getAllLeafNodes(ASTNode node) {
-        Set<String> leafNodes = new HashSet<String>();
-        // Basecase has been reached and returns the node name
-        if (node.getNodeType() == "ID") {
-            leafNodes.add(node.getId());
-            // If the node is of the not variety then it is unable to recurse
-            // down child2
-        } else if (node.getNodeType() == "NOT") {
-            leafNodes.addAll(getAllLeafNodes(node.child1));
-            // Otherwise recurse down the left and right children
+    // Prints the answer of a decision-only run: the status and, when
+    // satisfiable, one satisfying assignment. An answer left UNKNOWN by the
+    // budget says which limit stopped it.
+    public static void printDecision(SolveResult result, VariableOrder order,
+            Budget budget, String command) {
+        System.out.println("input: " + command);
+        if (result.status == SolveResult.Status.UNKNOWN
+                && budget.reason() != null) {
+            System.out.println("UNKNOWN: " + budget.reason());
         } else {
-                leafNodes.addAll(getAllLeafNodes(node.child1));
-                leafNodes.addAll(getAllLeafNodes(node.child2));
-        }
-        return leafNodes;
-    }
-
-    // Enumerates all combinations of true and false for a given set of
-    // variables
-    // while doing so, enumerate edits a hashmap "endMap" with a string
-    // representation of the enumeration as its key and whether it is
-    // satisfiable as its value
-    public static void enumerate(int[] sofar, int size,
-            Set<String> leafNodes, int k, HashMap<String, Boolean> endMap,
-            ASTNode root) {
-        // Base case is reached
-        if (k == size) {
-            // Assigns true/false to variables based on enumeration
-            HashMap<String, Boolean> bool = assignBool(sofar, leafNodes);
-            // Creates a string representation of the enumeration
-            String assignment = assign(sofar, bool);
-            // edits the ending hashmap
-            endMap.put(assignment, process(bool, root));
+            System.out.println(result.status);
+        }
+        if (result.status == SolveResult.Status.SAT) {
+            System.out.println(result.format(order));
+        }
+    }
+
+    // Compiles the expression, falling back to the tree walking evaluator
+    // when it is too large for a generated method
+    public static Evaluator createEvaluator(ExpressionIndex index) {
+        try {
+            return ExpressionCompiler.compile(index);
+        } catch (IllegalArgumentException e) {
+            return new InterpretedEvaluator(index);
+        }
+    }
+
+    // Lists every line of the input file through an ExpressionPipeline
+    public static void runPipeline(Options options, Budget budget,
+            String filename) throws IOException {
+        if (budget.isLimited()) {
+            throw new IOException("--all-lines does not support limits");
+        }
+        int threads = (int) options.getLong("threads",
+                Runtime.getRuntime().availableProcessors());
+        BufferedReader in;
+        try {
+            in = new BufferedReader(new FileReader(filename), 1 << 16);
+        } catch (FileNotFoundException e) {
+            throw new IOException("File not found");
+        }
+        try {
+            new ExpressionPipeline(options, Math.max(1, threads)).run(in,
+                    new BufferedOutputStream(openOutput(options), 1 << 20));
+        } finally {
+            in.close();
+        }
+    }
+
+    // Evaluates the assignments listed in the --eval file with the compiled
+    // expression, one batch per processor at a time
+    public static void runBulk(Options options, ExpressionIndex index,
+            Budget budget, String command) throws IOException {
+        BulkEvaluator bulk = new BulkEvaluator(createEvaluator(index),
+                index.order(), Runtime.getRuntime().availableProcessors());
+        try (InputStream in = new FileInputStream(options.get("eval", null))) {
+            bulk.run(in, openOutput(options), budget, command);
+        }
+    }
+
+    // Prints the listing for an expression through the output layer,
+    // consulting the result cache when one was given
+    public static void runIndexed(Options options, ExpressionIndex index,
+            Budget budget, String command) throws IOException {
+        ASTNode root = index.root();
+        VariableOrder order = index.order();
+        if (options.has("cubes")) {
+            printCubes(options, root, order, budget, command);
+            return;
+        }
+        if (options.has("simd") && options.has("jit")) {
+            throw new IOException("--simd cannot be combined with --jit");
+        }
+        Evaluator evaluator;
+        if (options.has("simd")) {
+            evaluator = new BitSlicedEvaluator(index);
+        } else if (options.has("jit")) {
+            evaluator = createEvaluator(index);
+        } else {
+            evaluator = new InterpretedEvaluator(index);
+        }
+        if (options.has("shard")) {
+            if (budget.isLimited()) {
+                throw new IOException("--shard does not support limits");
+            }
+            printSharded(options, order, command);
+            return;
+        }
+        if (options.has("range") || options.has("checkpoint")) {
+            printRange(options, root, evaluator, order, budget, command);
             return;
         }
-        // All possible local decisions
-        for (int i = 0; i < 2; i++) {
-            sofar[k] = i; // Local decision
-            enumerate(sofar, size, leafNodes, k + 1, endMap, root);
-            sofar[k] = 0; // Local decision undone
+        AssignmentWriter writer = openWriter(options, order, budget);
+        if (options.has("preprocess")
+                && printPreprocessed(root, order, writer, options.isDebug(),
+                        budget, command)) {
+            return;
+        }
+        if (options.has("cache")) {
+            ResultCache cache = new ResultCache(ResultCache.DEFAULT_CAPACITY,
+                    new File(options.get("cache", null)));
+            printCached(cache, CanonicalForm.hash(root, order), evaluator,
+                    order, writer, options.isDebug(), budget, command);
+        } else if (options.isDebug()) {
+            printStored(evaluator, order, writer, budget, command);
+        } else if (evaluator instanceof BitSlicedEvaluator) {
+            printWide((BitSlicedEvaluator) evaluator, order, writer, budget,
+                    command);
+        } else {
+            printIndexed(evaluator, order, writer, false, budget, command);
+        }
+    }
 
+    // Prints from a cached truth table when there is one, otherwise solves
+    // the expression and stores what was learned about it
+    public static void printCached(ResultCache cache, String key,
+            Evaluator evaluator, VariableOrder order, AssignmentWriter writer,
+            boolean debug, CancellationToken token, String command)
+            throws IOException {
+        ResultCache.Entry entry = cache.get(key);
+        if (entry != null && entry.hasTable()) {
+            printIndexed(entry.table(), order, writer, debug, token, command);
+        } else if (entry != null && !entry.sat && !debug) {
+            // An unsatisfiable expression lists nothing
+            writer.begin(command, false);
+            writer.finish();
+        } else if (order.size() <= TruthTable.MAX_VARIABLES) {
+            TruthTable table = TruthTable.of(evaluator, order, token);
+            cache.put(key, ResultCache.Entry.of(table));
+            printIndexed(table, order, writer, debug, token, command);
+        } else {
+            long count = printIndexed(evaluator, order, writer, debug, token,
+                    command);
+            if (entry == null) {
+                cache.put(key, new ResultCache.Entry(count > 0, count));
+            }
         }
     }
 
-    // Processes a tree recursively and returns whether it is satisfiable
-    public static boolean process(HashMap<String, Boolean> assignBool,
-            ASTNode root) {
+    // Enumerates the variables left after CnfPreprocessor and expands each
+    // model through its reconstruction stack into a ResultStore, which is
+    // then listed in sorted order. Returns false without writing anything
+    // when preprocessing does not leave fewer variables than the expression
+    // has.
+    public static boolean printPreprocessed(ASTNode root, VariableOrder order,
+            AssignmentWriter writer, boolean debug, CancellationToken token,
+            String command) throws IOException {
+        CnfFormula cnf = CnfFormula.of(root, order);
+        CnfPreprocessor pre = CnfPreprocessor.run(cnf, true);
+        int[] kept = pre.remaining();
+        if (!pre.isUnsat() && kept.length >= order.size()) {
+            return false;
+        }
+        ResultStore store = ResultStore.create(order);
+        try {
+            boolean sat = false;
+            if (!pre.isUnsat()) {
+                // Each simplified clause as the bits of kept that make it true
+                List<int[]> clauses = pre.formula().clauses();
+                long[] pos = new long[clauses.size()];
+                long[] neg = new long[clauses.size()];
+                int[] bit = new int[cnf.variables() + 1];
+                for (int i = 0; i < kept.length; i++) {
+                    bit[kept[i]] = i;
+                }
+                for (int c = 0; c < pos.length; c++) {
+                    for (int lit : clauses.get(c)) {
+                        if (lit > 0) {
+                            pos[c] |= 1L << bit[lit];
+                        } else {
+                            neg[c] |= 1L << bit[-lit];
+                        }
+                    }
+                }
+                boolean[] values = new boolean[cnf.variables()];
+                long reduced = 1L << kept.length;
+                for (long bits = 0; bits < reduced; bits++) {
+                    if ((bits & (Budget.CHECK_INTERVAL - 1)) == 0) {
+                        token.check();
+                    }
+                    boolean holds = true;
+                    for (int c = 0; c < pos.length && holds; c++) {
+                        holds = (bits & pos[c]) != 0 || (~bits & neg[c]) != 0;
+                    }
+                    if (!holds) {
+                        continue;
+                    }
+                    for (int i = 0; i < kept.length; i++) {
+                        values[kept[i] - 1] = ((bits >>> i) & 1) != 0;
+                    }
+                    sat = true;
+                    pre.expand(values, full -> {
+                        long index = 0;
+                        for (int id = 0; id < order.size(); id++) {
+                            if (full[id]) {
+                                index |= 1L << order.shift(id);
+                            }
+                        }
+                        store.set(index);
+                    });
+                }
+            }
+            long total = order.assignments();
+            writer.begin(command, sat);
+            for (long bits = 0; bits < total; bits++) {
+                boolean value = store.eval(bits);
+                if (debug || value) {
+                    writer.write(bits, value);
+                }
+            }
+            writer.finish();
+        } finally {
+            store.close();
+        }
+        return true;
+    }
 
-        // Returns the and of child1 and child2
-        if (root.getNodeType() == "AND") {
-            return process(assignBool, root.child1)
-                    && process(assignBool, root.child2);
-            // Returns the or of child1 and child2
-        } else if (root.getNodeType() == "OR") {
-            return process(assignBool, root.child1)
-                    || process(assignBool, root.child2);
+    // Writes the DEBUG listing: every assignment is evaluated once into a
+    // ResultStore, which is then rendered in sorted order
+    public static long printStored(Evaluator evaluator, VariableOrder order,
+            AssignmentWriter writer, CancellationToken token, String command)
+            throws IOException {
+        long total = order.assignments();
+        ResultStore store = ResultStore.create(order);
+        long count = 0;
+        try {
+            for (long bits = 0; bits < total; bits++) {
+                if ((bits & (Budget.CHECK_INTERVAL - 1)) == 0) {
+                    token.check();
+                }
+                if (evaluator.eval(bits)) {
+                    store.set(bits);
+                    count = count + 1;
+                }
+            }
+            writer.begin(command, count > 0);
+            for (long bits = 0; bits < total; bits++) {
+                writer.write(bits, store.eval(bits));
+            }
+            writer.finish();
+        } finally {
+            store.close();
+        }
+        return count;
+    }
 
-            // returns the opposite of what was processed
-        } else if (root.getNodeType() == "NOT") {
-            return !process(assignBool, root.child1);
+    // Writes the satisfying assignments a block at a time, pulling the
+    // indices of the set bits out of each result word in increasing order
+    public static long printWide(BitSlicedEvaluator evaluator,
+            VariableOrder order, AssignmentWriter writer,
+            CancellationToken token, String command) throws IOException {
+        long total = order.assignments();
+        long[] block = new long[BitSlicedEvaluator.WIDTH];
+        // Finds the first block with a satisfying assignment
+        long first = 0;
+        for (; first < total; first += BitSlicedEvaluator.BLOCK) {
+            if ((first & (Budget.CHECK_INTERVAL - 1)) == 0) {
+                token.check();
+            }
+            evaluator.evalBlock(first, block);
+            if (firstSet(block, first, total) >= 0) {
+                break;
+            }
+        }
+        writer.begin(command, first < total);
+        long count = 0;
+        for (long base = first; base < total;
+                base += BitSlicedEvaluator.BLOCK) {
+            if ((base & (Budget.CHECK_INTERVAL - 1)) == 0) {
+                token.check();
+            }
+            evaluator.evalBlock(base, block);
+            for (int w = 0; w < block.length; w++) {
+                long word = block[w];
+                while (word != 0) {
+                    long bits = base + 64 * w
+                            + Long.numberOfTrailingZeros(word);
+                    if (bits >= total) {
+                        break;
+                    }
+                    writer.write(bits, true);
+                    count = count + 1;
+                    word = word & (word - 1);
+                }
+            }
+        }
+        writer.finish();
+        return count;
+    }
 
-            // the only node type left is Id whose value is returned
+    // Returns the first satisfying assignment in a block, or -1
+    private static long firstSet(long[] block, long base, long total) {
+        for (int w = 0; w < block.length; w++) {
+            if (block[w] != 0) {
+                long bits = base + 64 * w
+                        + Long.numberOfTrailingZeros(block[w]);
+                return bits < total ? bits : -1;
+            }
+        }
+        return -1;
+    }
+
+    // Compares the expression with the one in the --equiv or --implies file
+    // and prints the verdict, followed by a distinguishing assignment over
+    // the variables of both and the value each expression takes there
+    public static void printComparison(Options options, ASTNode root,
+            CancellationToken token, String command) {
+        boolean implication = !options.has("equiv");
+        String other = implication ? options.get("implies", null)
+                : options.get("equiv", null);
+        String otherCommand = openInfile(other).nextLine();
+        ASTNode otherRoot = BoolSatParser.parse(otherCommand);
+        EquivalenceChecker checker = new EquivalenceChecker(root, otherRoot,
+                options.getLong("seed", 0));
+        boolean[] model = checker.counterexample(implication, token);
+        System.out.println("input: " + command);
+        System.out.println("input: " + otherCommand);
+        if (model == null) {
+            System.out.println(implication ? "IMPLIES" : "EQUIVALENT");
+            return;
+        }
+        System.out.println(implication ? "DOES NOT IMPLY" : "DIFFERENT");
+        VariableOrder order = checker.order();
+        String values = SolveResult.sat(model, "equiv").format(order);
+        boolean[] results = checker.values(model);
+        System.out.println(values + ", " + results[0] + ", " + results[1]);
+    }
+
+    // Lists the satisfying assignments of the --project variables in sorted
+    // order; in debug mode every combination of them is listed with its
+    // value
+    public static void printProjected(Options options, ASTNode root,
+            VariableOrder order, Budget budget, String command)
+            throws IOException {
+        ArrayList<String> names = new ArrayList<String>();
+        for (String name : options.get("project", "").split(",")) {
+            name = name.trim();
+            if (name.isEmpty() || names.contains(name)) {
+                continue;
+            }
+            if (order.id(name) < 0) {
+                throw new IOException("Unknown variable " + name);
+            }
+            names.add(name);
+        }
+        if (names.isEmpty()) {
+            throw new IOException("--project needs at least one variable");
+        }
+        if (names.size() > VariableOrder.MAX_VARIABLES) {
+            throw new IOException("Too many variables to project on");
+        }
+        Collections.sort(names);
+        VariableOrder projected = new VariableOrder(names);
+        long[] found = new ProjectedEnumerator(root, order, projected)
+                .run(budget);
+        AssignmentWriter writer = openWriter(options, projected, budget);
+        writer.begin(command, found.length > 0);
+        if (options.isDebug()) {
+            int next = 0;
+            for (long bits = 0; bits < projected.assignments(); bits++) {
+                boolean value = next < found.length && found[next] == bits;
+                if (value) {
+                    next = next + 1;
+                }
+                writer.write(bits, value);
+            }
         } else {
-            return assignBool.get(root.getId());
-        }
-    }
-
-    // Returns a lexicographically sorted(based on keys) string of an
-    // enumeration
-    public static String assign(int[] sofar, HashMap<String, Boolean> bool) {
-        String str="";
-        // Sorts the hashmap of keys
-        ArrayList<String> list = new ArrayList<String>(bool.keySet());
-        Collections.sort(list);
-        // Creates a string representation of the enumeration
-        for (String s : list) {
-            str = str + s + ": " + bool.get(s) + ", ";
-        }
-        return str;
-    }
-
-    // Returns a hashmap of variables to true or false based on an enumeration
-    public static HashMap<String, Boolean> assignBool(int[] sofar,
-            Set<String> leafNodes) {
-        // Initializations
-        HashMap<String, Boolean> hashMap = new HashMap<String, Boolean>();
-        int iter = 0;
-        Boolean value = null;
-        // Places each variable to its true or false value in the hashmap
-        for (String s : leafNodes) {
-            // Converts 0 or 1 to false or true
-            if (sofar[iter] == 0) {
-                value = false;
-            } else {
-                value = true;
-            }
-            hashMap.put(s, value);
-            iter = iter + 1;
-        }
-        return hashMap;
-    }
-
-    // Lexicographically prints the possible enumerations
-    public static void printAll(HashMap<String, Boolean> endMap,
-            String[] args, String command) {
-        // Initializations
-        ArrayList<String> list = new ArrayList<String>();
-        // Sat is whether a command was satisfiable
-        String sat = "UNSAT";
-        // If debug mode is enabled all enumerations are gathered
-        if (args.length == 2) {
-            for (String s : endMap.keySet()) {
-                list.add(s + endMap.get(s));
-                if (endMap.get(s) == true) {
-                    sat = "SAT";
+            for (long bits : found) {
+                writer.write(bits, true);
+            }
+        }
+        writer.finish();
+    }
+
+    // Prints --sample uniformly drawn satisfying assignments, counting the
+    // models below every node of the expression's Bdd first. The diagram
+    // tests the variables in order of appearance, which is usually far
+    // smaller than the sorted order. The samples are held to the budget
+    // like any listing.
+    public static void printSamples(Options options, ASTNode root,
+            VariableOrder order, Budget budget, String command)
+            throws IOException {
+        long samples = options.getLong("sample", 0);
+        Random random = options.has("seed")
+                ? new Random(options.getLong("seed", 0)) : new Random();
+        VariableOrder appearance = VariableOrder.byOccurrence(root);
+        Bdd bdd;
+        try {
+            bdd = Bdd.of(root, appearance, budget);
+        } catch (IllegalStateException e) {
+            throw new IOException("Expression too large to sample");
+        }
+        BudgetedLines out = new BudgetedLines(openOutput(options), budget);
+        if (bdd.root() == Bdd.FALSE) {
+            out.begin(command, "UNSAT");
+        } else {
+            out.begin(command, "SAT");
+            BddSampler sampler = new BddSampler(bdd, random);
+            boolean[] model = new boolean[order.size()];
+            for (long i = 0; i < samples; i++) {
+                boolean[] drawn = sampler.sample();
+                for (int id = 0; id < model.length; id++) {
+                    model[id] = drawn[appearance.id(order.name(id))];
                 }
+                out.write(SolveResult.sat(model, "sample").format(order));
+            }
+        }
+        out.flush();
+    }
+
+    // Writes the cube listing from the decision diagram of the expression
+    public static void printCubes(Options options, ASTNode root,
+            VariableOrder order, Budget budget, String command)
+            throws IOException {
+        Bdd bdd;
+        try {
+            bdd = Bdd.of(root, order, budget);
+        } catch (IllegalStateException e) {
+            throw new IOException("Expression too large for cube output");
+        }
+        new CubeWriter(order, options.isDebug(), openOutput(options), budget)
+                .write(bdd, command);
+    }
+
+    // Returns the stream named by --out, or stdout
+    public static OutputStream openOutput(Options options)
+            throws IOException {
+        if (options.has("out")) {
+            return new FileOutputStream(options.get("out", null));
+        }
+        return System.out;
+    }
+
+    // Creates the writer chosen by --format, writing to --out or stdout
+    public static AssignmentWriter openWriter(Options options,
+            VariableOrder order, Budget budget) throws IOException {
+        return createWriter(options, order, openOutput(options), budget);
+    }
+
+    // Creates the writer chosen by --format over the given stream, held to
+    // the budget when it has any limits
+    public static AssignmentWriter createWriter(Options options,
+            VariableOrder order, OutputStream out, Budget budget)
+            throws IOException {
+        BudgetedWriter.Cut cut = null;
+        if (budget.isLimited()) {
+            cut = new BudgetedWriter.Cut(out, budget.maxBytes());
+            out = cut;
+        }
+        String format = options.get("format", "text");
+        AssignmentWriter writer;
+        if (format.equals("text")) {
+            writer = new TextAssignmentWriter(order, options.isDebug(), out);
+        } else if (format.equals("binary")) {
+            writer = new BinaryAssignmentWriter(order, options.isDebug(), out);
+        } else {
+            throw new IOException("Unknown format " + format);
+        }
+        return cut != null ? new BudgetedWriter(writer, budget, cut) : writer;
+    }
+
+    // Ends a run stopped by its budget. A listing that had begun keeps what
+    // was written of it and is followed by TRUNCATED; otherwise whether the
+    // expression is satisfiable was never settled and UNKNOWN is printed.
+    // The status goes to stderr when stdout carries a binary listing.
+    public static void printStopped(Options options, Budget budget,
+            String command) throws IOException {
+        if (budget.reason() == null) {
+            throw new IllegalStateException("run cancelled without a limit");
+        }
+        Budget.Listing listing = budget.listing();
+        boolean began = listing != null && listing.began();
+        if (listing != null) {
+            listing.close();
+        }
+        PrintStream status = System.out;
+        if (!options.has("out")
+                && options.get("format", "text").equals("binary")) {
+            status = System.err;
+        }
+        if (began) {
+            status.println("TRUNCATED: " + budget.reason());
+        } else {
+            status.println("input: " + command);
+            status.println("UNKNOWN: " + budget.reason());
+        }
+        status.flush();
+    }
+
+    // Lists the assignments through a ShardCoordinator, forking the
+    // requested number of local workers
+    public static void printSharded(Options options, VariableOrder order,
+            String command) throws IOException {
+        long shards = options.getLong("shard", 1);
+        // Without --bind no worker but the forked ones can ever connect
+        if (shards < (options.has("bind") ? 0 : 1)
+                || shards > ShardCoordinator.MAX_LOCAL_WORKERS) {
+            throw new IOException("--shard needs a count from "
+                    + (options.has("bind") ? 0 : 1) + " to "
+                    + ShardCoordinator.MAX_LOCAL_WORKERS);
+        }
+        long port = options.getLong("port", 0);
+        if (port < 0 || port > 65535) {
+            throw new IOException("--port needs a port from 0 to 65535");
+        }
+        int local = (int) shards;
+        String token = System.getenv(ShardCoordinator.TOKEN_VARIABLE);
+        InetAddress address = InetAddress.getLoopbackAddress();
+        if (options.has("bind")) {
+            // Workers on other hosts cannot know a token made up here
+            if (token == null) {
+                throw new IOException("--bind needs "
+                        + ShardCoordinator.TOKEN_VARIABLE);
+            }
+            address = InetAddress.getByName(options.get("bind", null));
+        }
+        if (token == null) {
+            token = ShardCoordinator.newToken();
+        }
+        ServerSocket server = new ServerSocket((int) port, 50, address);
+        ArrayList<Process> workers = new ArrayList<Process>();
+        try {
+            for (int i = 0; i < local; i++) {
+                workers.add(ShardCoordinator.fork(server.getLocalPort(),
+                        token));
+            }
+            OutputStream out = openOutput(options);
+            AssignmentWriter writer = createWriter(options, order, out,
+                    new Budget(0, 0, 0));
+            new ShardCoordinator(command, order, options.isDebug(),
+                    options.get("format", "text"), token)
+                    .run(server, writer, out, workers);
+        } finally {
+            server.close();
+            for (Process worker : workers) {
+                worker.destroy();
             }
-            // No debug mode, only true enumerations are gathered
+        }
+    }
+
+    // Lists the --range slice of the assignment space. With --checkpoint the
+    // progress is saved regularly, and --resume truncates the output to the
+    // last saved offset and carries on from the index saved with it.
+    public static void printRange(Options options, ASTNode root,
+            Evaluator evaluator, VariableOrder order, Budget budget,
+            String command) throws IOException {
+        printRange(options, root, evaluator, order, budget, command,
+                CHECKPOINT_MILLIS);
+    }
+
+    // Lists the --range slice, saving the checkpoint at most once per
+    // saveMillis
+    static void printRange(Options options, ASTNode root,
+            Evaluator evaluator, VariableOrder order, Budget budget,
+            String command, long saveMillis) throws IOException {
+        String hash = CanonicalForm.hash(root, order);
+        File file = null;
+        if (options.has("checkpoint")) {
+            if (!options.has("out")) {
+                throw new IOException("--checkpoint needs --out");
+            }
+            file = new File(options.get("checkpoint", null));
+        }
+        EnumerationCheckpoint checkpoint;
+        FileOutputStream fileOut = null;
+        if (options.has("resume")) {
+            if (file == null) {
+                throw new IOException("--resume needs --checkpoint");
+            }
+            checkpoint = EnumerationCheckpoint.load(file);
+            if (!checkpoint.matches(hash, order)) {
+                throw new IOException("Checkpoint is for another expression");
+            }
+            if (!checkpoint.matches(options.isDebug(),
+                    options.get("format", "text"))) {
+                throw new IOException(
+                        "Checkpoint was taken with other output settings");
+            }
+            fileOut = new FileOutputStream(options.get("out", null), true);
+            fileOut.getChannel().truncate(checkpoint.offset);
         } else {
-            for (String s : endMap.keySet()) {
-                if (endMap.get(s) == true) {
-                    list.add(s.substring(0, s.length() - 2));
-                    sat = "SAT";
+            long[] range = parseRange(options.get("range", ":"),
+                    order.assignments());
+            checkpoint = new EnumerationCheckpoint(hash,
+                    EnumerationCheckpoint.variables(order), options.isDebug(),
+                    options.get("format", "text"), range[0], range[1]);
+            if (options.has("out")) {
+                fileOut = new FileOutputStream(options.get("out", null));
+            }
+        }
+        AssignmentWriter writer = createWriter(options, order,
+                fileOut != null ? fileOut : System.out, budget);
+        boolean debug = options.isDebug();
+        long saved = System.currentTimeMillis();
+        long bits = checkpoint.next;
+        if (!checkpoint.header) {
+            // Finds the first satisfying assignment to decide SAT or UNSAT
+            while (bits < checkpoint.end && !evaluator.eval(bits)) {
+                bits = bits + 1;
+                if ((bits & (Budget.CHECK_INTERVAL - 1)) == 0) {
+                    budget.check();
                 }
+                if (file != null && (bits - checkpoint.start)
+                        % CHECKPOINT_STRIDE == 0
+                        && System.currentTimeMillis() - saved
+                        >= saveMillis) {
+                    checkpoint.next = bits;
+                    checkpoint.save(file);
+                    saved = System.currentTimeMillis();
+                }
+            }
+            checkpoint.header = true;
+            checkpoint.sat = bits < checkpoint.end;
+            writer.begin(command, checkpoint.sat);
+            // Without debug mode the unsatisfying prefix has nothing to print
+            if (debug) {
+                bits = checkpoint.start;
             }
         }
-        // Sorts the list of enumerations
-        Collections.sort(list);
-        // prints input, satisfiability, and enumerations with/without debug
-        // enabled
-        System.out.println("input: " + command);
-        System.out.println(sat);
-        for (String s : list) {
-            System.out.println(s);
+        for (; bits < checkpoint.end; bits++) {
+            if (file != null && (bits - checkpoint.start)
+                    % CHECKPOINT_STRIDE == 0
+                    && System.currentTimeMillis() - saved
+                    >= saveMillis) {
+                saveProgress(writer, fileOut, checkpoint, bits, file);
+                saved = System.currentTimeMillis();
+            }
+            if ((bits & (Budget.CHECK_INTERVAL - 1)) == 0) {
+                budget.check();
+            }
+            boolean value = evaluator.eval(bits);
+            if (debug || value) {
+                writer.write(bits, value);
+            }
+        }
+        writer.finish();
+        if (fileOut != null) {
+            fileOut.close();
+        }
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    // Records that everything before the given index is safely in the
+    // output file
+    private static void saveProgress(AssignmentWriter writer,
+            FileOutputStream out, EnumerationCheckpoint checkpoint,
+            long next, File file) throws IOException {
+        writer.flush();
+        out.getChannel().force(false);
+        checkpoint.next = next;
+        checkpoint.offset = out.getChannel().position();
+        checkpoint.save(file);
+    }
+
+    // Parses "START:END" into a slice of [0, total); either end may be left
+    // out
+    public static long[] parseRange(String range, long total)
+            throws IOException {
+        int colon = range.indexOf(':');
+        try {
+            if (colon < 0) {
+                throw new NumberFormatException();
+            }
+            String first = range.substring(0, colon).trim();
+            String last = range.substring(colon + 1).trim();
+            long start = first.isEmpty() ? 0 : Long.parseLong(first);
+            long end = last.isEmpty() ? total : Long.parseLong(last);
+            if (start < 0 || start > end || end > total) {
+                throw new IOException("Range " + range + " is outside 0:"
+                        + total);
+            }
+            return new long[] { start, end };
+        } catch (NumberFormatException e) {
+            throw new IOException("Range must look like START:END");
+        }
+    }
+
+    // Writes the same listing as printAll by counting through the
+    // assignment indices, which already come out in sorted order, and
+    // returns the number of satisfying assignments
+    public static long printIndexed(Evaluator evaluator, VariableOrder order,
+            AssignmentWriter writer, boolean debug, CancellationToken token,
+            String command) throws IOException {
+        long total = order.assignments();
+        // Finds the first satisfying assignment to decide SAT or UNSAT
+        long first = 0;
+        while (first < total && !evaluator.eval(first)) {
+            first = first + 1;
+            if ((first & (Budget.CHECK_INTERVAL - 1)) == 0) {
+                token.check();
+            }
+        }
+        writer.begin(command, first < total);
+        // Without debug mode the unsatisfying prefix has nothing to print
+        long start = debug ? 0 : first;
+        long count = 0;
+        for (long bits = start; bits < total; bits++) {
+            if ((bits & (Budget.CHECK_INTERVAL - 1)) == 0) {
+                token.check();
+            }
+            boolean value = evaluator.eval(bits);
+            if (value) {
+                count = count + 1;
+            }
+            if (debug || value) {
+                writer.write(bits, value);
+            }
         }
+        writer.finish();
+        return count;
     }
 }
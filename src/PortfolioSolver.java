@@ -0,0 +1,78 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import bool_exp.ASTNode;
+
+/*
+ * Races several SatEngines on the same expression, one thread each, and
+ * returns the first definitive answer. The moment one engine decides, the
+ * shared token is cancelled and the others stop at their next check, so the
+ * time taken is close to that of the best engine for the input.
+ */
+public class PortfolioSolver {
+
+    private final List<SatEngine> engines;
+
+    public PortfolioSolver(List<SatEngine> engines) {
+        this.engines = engines;
+    }
+
+    // The default line-up: enumeration while the space is small, a BDD, a
+    // local search walker, and clause learning with a few different seeds
+    public static PortfolioSolver standard(ASTNode root, VariableOrder order) {
+        ArrayList<SatEngine> engines = new ArrayList<SatEngine>();
+        if (order.size() <= VariableOrder.MAX_VARIABLES) {
+            engines.add(new EnumerationEngine(root, order));
+        }
+        engines.add(new BddEngine(root, order));
+        engines.add(new LocalSearchEngine(root, order, 1,
+                LocalSearchEngine.DEFAULT_FLIPS));
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors()
+                - engines.size());
+        for (int seed = 0; seed < Math.min(threads, 3); seed++) {
+            engines.add(new CdclEngine(root, order, seed));
+        }
+        return new PortfolioSolver(engines);
+    }
+
+    // Runs every engine until one decides; UNKNOWN only if none of them did
+    // or the caller's token was cancelled first
+    public SolveResult solve(CancellationToken caller) {
+        final CancellationToken race = new CancellationToken(caller);
+        ExecutorService pool = Executors.newFixedThreadPool(engines.size());
+        ExecutorCompletionService<SolveResult> done =
+                new ExecutorCompletionService<SolveResult>(pool);
+        for (final SatEngine engine : engines) {
+            done.submit(() -> {
+                try {
+                    return engine.solve(race);
+                } catch (CancellationException e) {
+                    return SolveResult.unknown(engine.name());
+                }
+            });
+        }
+        SolveResult answer = SolveResult.unknown("portfolio");
+        try {
+            for (int i = 0; i < engines.size(); i++) {
+                SolveResult result = done.take().get();
+                if (result.isDefinitive()) {
+                    answer = result;
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            race.cancel();
+            pool.shutdown();
+        }
+        return answer;
+    }
+}
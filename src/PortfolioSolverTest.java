@@ -0,0 +1,42 @@
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import bool_exp.ASTNode;
+import bool_exp.BoolSatParser;
+
+// Junit testing of the portfolio of racing engines
+public class PortfolioSolverTest {
+    // Tests the portfolio verdict against clause learning alone
+    @Test
+    public void testAgreesWithCdcl() {
+        Random random = new Random(33);
+        for (int round = 0; round < 60; round++) {
+            String expression = CnfFixtures.randomCnf(random, 12,
+                    40 + random.nextInt(25));
+            ASTNode root = BoolSatParser.parse(expression);
+            VariableOrder order = VariableOrder.of(root);
+            SolveResult cdcl = new CdclEngine(root, order, 0)
+                    .solve(CancellationToken.NONE);
+            SolveResult portfolio = PortfolioSolver.standard(root, order)
+                    .solve(CancellationToken.NONE);
+            CnfFixtures.assertAgrees(root, order, cdcl, portfolio);
+        }
+    }
+
+    // Tests an unsatisfiable fixture far too wide to enumerate, and that a
+    // cancelled caller gets UNKNOWN
+    @Test
+    public void testPigeonhole() {
+        ASTNode root = BoolSatParser.parse(CnfFixtures.pigeonhole(6));
+        VariableOrder order = VariableOrder.of(root);
+        Assert.assertEquals(SolveResult.Status.UNSAT,
+                PortfolioSolver.standard(root, order)
+                        .solve(CancellationToken.NONE).status);
+        CancellationToken cancelled = new CancellationToken();
+        cancelled.cancel();
+        Assert.assertEquals(SolveResult.Status.UNKNOWN,
+                PortfolioSolver.standard(root, order).solve(cancelled).status);
+    }
+}
@@ -0,0 +1,64 @@
+import java.util.Arrays;
+
+import bool_exp.ASTNode;
+
+/*
+ * Finds the distinct satisfying assignments of a subset of the variables,
+ * the others being existentially quantified.
+ *
+ * Clause learning finds one model at a time. Its values on the projected
+ * variables are recorded and a blocking clause ruling out exactly that
+ * combination is added, so the next model must differ on a projected
+ * variable; the hidden variables are never enumerated. The solver keeps
+ * what it learned between models, and the loop ends when the clauses
+ * become unsatisfiable.
+ */
+public class ProjectedEnumerator {
+
+    private final CdclSolver solver;
+    private final VariableOrder projected;
+    // Solver variable of each projected id
+    private final int[] vars;
+
+    // The projection must name variables of the order; at most
+    // VariableOrder.MAX_VARIABLES of them
+    public ProjectedEnumerator(ASTNode root, VariableOrder order,
+            VariableOrder projected) {
+        this.solver = CdclSolver.of(CnfFormula.of(root, order));
+        this.projected = projected;
+        this.vars = new int[projected.size()];
+        for (int id = 0; id < vars.length; id++) {
+            vars[id] = order.id(projected.name(id)) + 1;
+        }
+    }
+
+    // Returns the satisfying assignments of the projected variables as
+    // indices over the projected order, in increasing order
+    public long[] run(CancellationToken token) {
+        solver.setToken(token);
+        long[] found = new long[16];
+        int count = 0;
+        while (solver.solve()) {
+            long bits = 0;
+            int[] block = new int[vars.length];
+            for (int id = 0; id < vars.length; id++) {
+                boolean value = solver.modelValue(vars[id]);
+                if (value) {
+                    bits = bits | (1L << projected.shift(id));
+                }
+                block[id] = value ? -vars[id] : vars[id];
+            }
+            if (count == found.length) {
+                found = Arrays.copyOf(found, 2 * count);
+            }
+            found[count] = bits;
+            count = count + 1;
+            if (!solver.addClause(block)) {
+                break;
+            }
+        }
+        long[] result = Arrays.copyOf(found, count);
+        Arrays.sort(result);
+        return result;
+    }
+}
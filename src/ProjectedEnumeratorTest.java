@@ -0,0 +1,117 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import bool_exp.ASTNode;
+import bool_exp.BoolSatParser;
+
+// Junit testing of the projected enumeration behind --project
+public class ProjectedEnumeratorTest {
+    // Lists the expression with --project and returns the assignment lines
+    private List<String> project(String expression, String names)
+            throws IOException {
+        File out = File.createTempFile("projected", ".txt");
+        try {
+            Options options = Options.parse(new String[] { "file",
+                    "--project", names, "--out", out.getPath() });
+            ExpressionIndex index = ExpressionIndex.of(
+                    BoolSatParser.parse(expression));
+            PA4BoolSat.printProjected(options, index.root(), index.order(),
+                    new Budget(0, 0, 0), expression);
+            List<String> lines = Files.readAllLines(out.toPath());
+            return lines.subList(2, lines.size());
+        } finally {
+            out.delete();
+        }
+    }
+
+    // Projects the lines of the full listing onto the named variables by
+    // dropping the other fields and the repeated lines
+    private List<String> projectByHand(String expression, List<String> names)
+            throws IOException {
+        ExpressionIndex index = ExpressionIndex.of(
+                BoolSatParser.parse(expression));
+        ByteArrayOutputStream full = new ByteArrayOutputStream();
+        PA4BoolSat.printIndexed(new InterpretedEvaluator(index),
+                index.order(), new TextAssignmentWriter(index.order(), false,
+                        full), false, CancellationToken.NONE, expression);
+        String[] lines = full.toString().split("\n");
+        LinkedHashSet<String> projected = new LinkedHashSet<String>();
+        for (int i = 2; i < lines.length; i++) {
+            StringBuilder line = new StringBuilder();
+            for (String field : lines[i].split(", ")) {
+                if (names.contains(field.substring(0, field.indexOf(':')))) {
+                    line.append(line.length() > 0 ? ", " : "").append(field);
+                }
+            }
+            projected.add(line.toString());
+        }
+        return new ArrayList<String>(projected);
+    }
+
+    // Tests the projected listing against the full listing projected by
+    // hand, with the names given out of order and repeated
+    @Test
+    public void testAgainstFullListing() throws Exception {
+        Random random = new Random(40);
+        for (int round = 0; round < 100; round++) {
+            String expression = CnfFixtures.randomCnf(random, 7,
+                    5 + random.nextInt(25));
+            VariableOrder order = VariableOrder.of(
+                    BoolSatParser.parse(expression));
+            ArrayList<String> names = new ArrayList<String>();
+            StringBuilder given = new StringBuilder();
+            for (int i = 0; i < 1 + random.nextInt(5); i++) {
+                String name = order.name(random.nextInt(order.size()));
+                given.append(given.length() > 0 ? "," : "").append(name);
+                if (!names.contains(name)) {
+                    names.add(name);
+                }
+            }
+            List<String> actual = project(expression, given.toString());
+            List<String> expected = projectByHand(expression, names);
+            Assert.assertEquals(expected.size(), actual.size());
+            Collections.sort(expected);
+            List<String> sorted = new ArrayList<String>(actual);
+            Collections.sort(sorted);
+            Assert.assertEquals(expected, sorted);
+        }
+    }
+
+    // Tests that the projections come out in increasing order
+    @Test
+    public void testSorted() {
+        ASTNode root = BoolSatParser.parse("(a || b) && (c || !d) && !(a && e)");
+        VariableOrder order = VariableOrder.of(root);
+        VariableOrder projected = new VariableOrder(
+                new ArrayList<String>(Arrays.asList("a", "c", "e")));
+        long[] found = new ProjectedEnumerator(root, order, projected)
+                .run(CancellationToken.NONE);
+        Assert.assertArrayEquals(new long[] { 0, 1, 2, 3, 4, 6 }, found);
+    }
+
+    // Tests that names missing from the expression and empty name lists
+    // are refused
+    @Test
+    public void testBadNames() {
+        for (String names : new String[] { "a,z", ",", " " }) {
+            try {
+                project("a && b", names);
+                Assert.fail("accepted --project " + names);
+            } catch (IOException e) {
+                Assert.assertTrue(e.getMessage().contains("--project")
+                        || e.getMessage().contains("Unknown variable"));
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/*
+ * Cache of solved expressions keyed by the hash of their CanonicalForm.
+ *
+ * Results live in a bounded in-memory tier that evicts the least recently
+ * used entry, backed by an optional directory holding one file per result so
+ * they survive between runs. The disk tier is best effort: a file that cannot
+ * be read or written is treated as a miss.
+ */
+public class ResultCache {
+
+    // Default number of results kept in memory
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private static final int FILE_MAGIC = 0x42534352;
+
+    /*
+     * A solved expression: whether it is satisfiable, how many assignments
+     * satisfy it and, for small expressions, its deflated truth table.
+     */
+    public static class Entry {
+        public final boolean sat;
+        public final long count;
+        private final byte[] table;
+        private final int tableWords;
+
+        public Entry(boolean sat, long count) {
+            this(sat, count, null, 0);
+        }
+
+        private Entry(boolean sat, long count, byte[] table, int tableWords) {
+            this.sat = sat;
+            this.count = count;
+            this.table = table;
+            this.tableWords = tableWords;
+        }
+
+        // Creates an entry holding a compressed copy of the table
+        public static Entry of(TruthTable table) {
+            long[] words = table.words();
+            ByteBuffer raw = ByteBuffer.allocate(words.length * 8);
+            raw.asLongBuffer().put(words);
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            deflater.setInput(raw.array());
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            deflater.end();
+            long count = table.count();
+            return new Entry(count > 0, count, out.toByteArray(),
+                    words.length);
+        }
+
+        public boolean hasTable() {
+            return table != null;
+        }
+
+        // Inflates the stored truth table
+        public TruthTable table() {
+            Inflater inflater = new Inflater();
+            inflater.setInput(table);
+            byte[] raw = new byte[tableWords * 8];
+            try {
+                int done = 0;
+                while (done < raw.length && !inflater.finished()) {
+                    done = done + inflater.inflate(raw, done,
+                            raw.length - done);
+                }
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("corrupt cached table", e);
+            } finally {
+                inflater.end();
+            }
+            long[] words = new long[tableWords];
+            ByteBuffer.wrap(raw).asLongBuffer().get(words);
+            return new TruthTable(words);
+        }
+    }
+
+    private final LinkedHashMap<String, Entry> memory;
+    private final File directory;
+
+    // Creates a cache; directory may be null for a memory only cache
+    public ResultCache(final int capacity, File directory) {
+        this.directory = directory;
+        this.memory = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> e) {
+                return size() > capacity;
+            }
+        };
+        if (directory != null) {
+            directory.mkdirs();
+        }
+    }
+
+    // Returns the cached result for a key, or null on a miss
+    public synchronized Entry get(String key) {
+        Entry entry = memory.get(key);
+        if (entry == null && directory != null) {
+            entry = read(file(key));
+            if (entry != null) {
+                memory.put(key, entry);
+            }
+        }
+        return entry;
+    }
+
+    // Stores a result in memory and on disk
+    public synchronized void put(String key, Entry entry) {
+        memory.put(key, entry);
+        if (directory != null) {
+            write(file(key), entry);
+        }
+    }
+
+    private File file(String key) {
+        return new File(directory, key + ".result");
+    }
+
+    private static Entry read(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new FileInputStream(file))) {
+            if (in.readInt() != FILE_MAGIC) {
+                return null;
+            }
+            boolean sat = in.readBoolean();
+            long count = in.readLong();
+            int tableWords = in.readInt();
+            if (tableWords == 0) {
+                return new Entry(sat, count);
+            }
+            byte[] table = new byte[in.readInt()];
+            in.readFully(table);
+            return new Entry(sat, count, table, tableWords);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // Writes through a temporary file so readers never see half a result
+    private static void write(File file, Entry entry) {
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new FileOutputStream(temp))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeBoolean(entry.sat);
+            out.writeLong(entry.count);
+            out.writeInt(entry.hasTable() ? entry.tableWords : 0);
+            if (entry.hasTable()) {
+                out.writeInt(entry.table.length);
+                out.write(entry.table);
+            }
+        } catch (IOException e) {
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import bool_exp.ASTNode;
+import bool_exp.BoolSatParser;
+
+// Junit testing of the canonical form keys and the result cache
+public class ResultCacheTest {
+    // Returns the cache key of an expression
+    private String key(String expression) {
+        ASTNode root = BoolSatParser.parse(expression);
+        return CanonicalForm.hash(root, VariableOrder.of(root));
+    }
+
+    // Tests that trivially different expressions share a key
+    @Test
+    public void testSameKey() {
+        Assert.assertEquals(key("a && b"), key("b && a"));
+        Assert.assertEquals(key("a && b"), key("((a)) &&   (b)"));
+        Assert.assertEquals(key("a || b && c"), key("(c && b) || a"));
+        Assert.assertEquals(key("!(!a) && b"), key("a && b"));
+        Assert.assertEquals(key("a && b && c"), key("a && (b && c)"));
+    }
+
+    // Tests that different truth tables get different keys
+    @Test
+    public void testDifferentKey() {
+        Assert.assertNotEquals(key("a && b"), key("a || b"));
+        Assert.assertNotEquals(key("a && !b"), key("!a && b"));
+        Assert.assertNotEquals(key("a || b && c"), key("(a || b) && c"));
+    }
+
+    // Tests the table round trip and least recently used eviction
+    @Test
+    public void testMemoryTier() {
+        ResultCache cache = new ResultCache(2, null);
+        ASTNode root = BoolSatParser.parse("a && !b");
+        VariableOrder order = VariableOrder.of(root);
+        TruthTable table = TruthTable.of(new InterpretedEvaluator(root, order),
+                order);
+        cache.put("x", ResultCache.Entry.of(table));
+        cache.put("y", new ResultCache.Entry(false, 0));
+        ResultCache.Entry entry = cache.get("x");
+        Assert.assertTrue(entry.sat);
+        Assert.assertEquals(1, entry.count);
+        Assert.assertTrue(entry.table().eval(2L));
+        Assert.assertFalse(entry.table().eval(3L));
+        // y is now the least recently used entry
+        cache.put("z", new ResultCache.Entry(false, 0));
+        Assert.assertNull(cache.get("y"));
+        Assert.assertNotNull(cache.get("x"));
+    }
+}
@@ -0,0 +1,94 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+
+/*
+ * One bit per assignment index, recording the value of the expression.
+ *
+ * Small stores live in a long[] on the heap. Larger ones are backed by a
+ * temporary file mapped into memory in 1GB segments, so they take no heap
+ * and their pages can be written back and dropped by the OS: a DEBUG
+ * listing over 32 or more variables needs 2^n / 8 bytes of disk rather than
+ * 2^n Strings in memory. Bit i of the store is bit (i % 64) of long i / 64.
+ */
+public class ResultStore implements Evaluator {
+
+    // Longs per mapped segment (1GB), as a power of two
+    private static final int SEGMENT_SHIFT = 27;
+
+    private final LongBuffer[] segments;
+    private final int segmentShift;
+    private final File file;
+    private final RandomAccessFile raf;
+
+    private ResultStore(LongBuffer[] segments, int segmentShift, File file,
+            RandomAccessFile raf) {
+        this.segments = segments;
+        this.segmentShift = segmentShift;
+        this.file = file;
+        this.raf = raf;
+    }
+
+    // Creates an all false store with room for every assignment of order
+    public static ResultStore create(VariableOrder order) throws IOException {
+        return create(order, order.size() > TruthTable.MAX_VARIABLES,
+                SEGMENT_SHIFT);
+    }
+
+    // Creates a store on the heap, or mapped from a file in segments of
+    // 2^segmentShift longs
+    static ResultStore create(VariableOrder order, boolean mapped,
+            int segmentShift) throws IOException {
+        long words = (order.assignments() + 63) / 64;
+        if (!mapped) {
+            return new ResultStore(
+                    new LongBuffer[] { LongBuffer.wrap(new long[(int) words]) },
+                    31, null, null);
+        }
+        int segmentWords = 1 << segmentShift;
+        File file = File.createTempFile("boolsat", ".bits");
+        file.deleteOnExit();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(words * 8);
+        FileChannel channel = raf.getChannel();
+        int count = (int) ((words + segmentWords - 1) / segmentWords);
+        LongBuffer[] segments = new LongBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long first = (long) i * segmentWords;
+            long size = Math.min(segmentWords, words - first);
+            segments[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                    first * 8, size * 8).asLongBuffer();
+        }
+        return new ResultStore(segments, segmentShift, file, raf);
+    }
+
+    // Marks an assignment as satisfying
+    public void set(long bits) {
+        long word = bits >>> 6;
+        LongBuffer segment = segments[(int) (word >>> segmentShift)];
+        int index = (int) (word & ((1L << segmentShift) - 1));
+        segment.put(index, segment.get(index) | (1L << bits));
+    }
+
+    public boolean eval(long bits) {
+        long word = bits >>> 6;
+        long value = segments[(int) (word >>> segmentShift)]
+                .get((int) (word & ((1L << segmentShift) - 1)));
+        return ((value >>> bits) & 1L) != 0;
+    }
+
+    // The backing file, or null for a store on the heap
+    File file() {
+        return file;
+    }
+
+    // Releases the backing file, if any
+    public void close() throws IOException {
+        if (raf != null) {
+            raf.close();
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+// Junit testing of the heap and file mapped result stores
+public class ResultStoreTest {
+    // An order over the given number of variables
+    private VariableOrder order(int size) {
+        ArrayList<String> names = new ArrayList<String>();
+        for (int i = 0; i < size; i++) {
+            names.add(String.format("v%02d", i));
+        }
+        return new VariableOrder(names);
+    }
+
+    // Sets bits on both sides of every word and segment boundary and
+    // checks that exactly those read back
+    private void check(ResultStore store, long total, long segmentBits) {
+        TreeSet<Long> set = new TreeSet<Long>();
+        for (long boundary = 0; boundary <= total; boundary += 64) {
+            for (long bits : new long[] { boundary - 1, boundary }) {
+                boolean segment = boundary % segmentBits == 0;
+                if (bits >= 0 && bits < total
+                        && (segment || boundary % 4096 == 0)) {
+                    set.add(bits);
+                }
+            }
+        }
+        set.add(total - 1);
+        for (long bits : set) {
+            store.set(bits);
+        }
+        for (long bits = 0; bits < total; bits++) {
+            Assert.assertEquals(set.contains(bits), store.eval(bits));
+        }
+    }
+
+    // Tests a store on the heap
+    @Test
+    public void testHeap() throws Exception {
+        VariableOrder order = order(16);
+        ResultStore store = ResultStore.create(order);
+        Assert.assertNull(store.file());
+        check(store, order.assignments(), order.assignments());
+        store.close();
+    }
+
+    // Tests a mapped store cut into many small segments, and that closing
+    // it deletes its file
+    @Test
+    public void testMapped() throws Exception {
+        VariableOrder order = order(20);
+        // Segments of 2^10 longs, 2^16 bits each
+        ResultStore store = ResultStore.create(order, true, 10);
+        File file = store.file();
+        Assert.assertTrue(file.exists());
+        Assert.assertEquals(order.assignments() / 8, file.length());
+        check(store, order.assignments(), 1 << 16);
+        store.close();
+        Assert.assertFalse(file.exists());
+    }
+
+    // Tests the store chosen for an order too large for the heap
+    @Test
+    public void testLargeOrderIsMapped() throws Exception {
+        ResultStore store = ResultStore.create(
+                order(TruthTable.MAX_VARIABLES + 1));
+        File file = store.file();
+        Assert.assertNotNull(file);
+        long last = (1L << (TruthTable.MAX_VARIABLES + 1)) - 1;
+        store.set(last);
+        Assert.assertTrue(store.eval(last));
+        Assert.assertFalse(store.eval(0));
+        store.close();
+        Assert.assertFalse(file.exists());
+    }
+}
@@ -0,0 +1,13 @@
+/*
+ * A strategy for deciding whether an expression is satisfiable.
+ *
+ * Engines are created for one expression and may run on their own thread.
+ * They poll the token regularly and return an UNKNOWN result (or let the
+ * CancellationException through) once it is cancelled.
+ */
+public interface SatEngine {
+
+    String name();
+
+    SolveResult solve(CancellationToken token);
+}
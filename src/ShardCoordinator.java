@@ -0,0 +1,331 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/*
+ * Splits the enumeration of one expression across worker processes.
+ *
+ * The assignment space is cut into ranges of CHUNK indices. Each connected
+ * ShardWorker asks for the next range as soon as it has returned the
+ * previous one, so faster workers simply do more of them. Rendered ranges
+ * come back out of order and are written in index order, which is the
+ * order of the single process listing. Ranges are only handed out within
+ * WINDOW_PER_WORKER ranges per worker of the next one to be written, which
+ * bounds how much finished output waits in memory. A range whose worker
+ * disconnects, or does not answer within the read timeout, is handed out
+ * again.
+ *
+ * Workers prove they belong to the run with a shared token, which forked
+ * workers get through the TOKEN_VARIABLE environment variable; a peer that
+ * does not send it never sees the expression and cannot add to the listing.
+ *
+ * Protocol, big endian over one TCP connection per worker:
+ *   worker:      int length and UTF-8 bytes of the token
+ *   coordinator: int length and UTF-8 bytes of the expression, boolean
+ *                debug, string format
+ *   then repeatedly
+ *   coordinator: long start, long end (start < 0 ends the session)
+ *   worker:      long satisfying count, int length, rendered bytes
+ *
+ * The SAT/UNSAT line depends on every range before the first satisfying
+ * one, so DEBUG output arriving before that is known goes to a temporary
+ * spool file and is copied out after the header.
+ */
+public class ShardCoordinator {
+
+    // Assignments per range
+    public static final long CHUNK = 1 << 16;
+    // Ranges per worker that may be finished or in flight ahead of output
+    private static final int WINDOW_PER_WORKER = 4;
+    // Most workers forked on this machine for one run
+    public static final int MAX_LOCAL_WORKERS = 256;
+    // Environment variable holding the token of the run
+    public static final String TOKEN_VARIABLE = "BOOLSAT_SHARD_TOKEN";
+    // Longest token accepted from a peer, in bytes
+    private static final int MAX_TOKEN = 1024;
+    // Default time a worker may take to answer before its range is lost
+    public static final int READ_TIMEOUT = 60000;
+
+    private final String command;
+    private final VariableOrder order;
+    private final boolean debug;
+    private final String format;
+    private final byte[] token;
+    private final long chunks;
+    private int timeout = READ_TIMEOUT;
+
+    // Shared with the connection threads, guarded by this
+    private long nextChunk = 0;
+    private long written = 0;
+    private int live = 0;
+    private int window = WINDOW_PER_WORKER;
+    private final ArrayDeque<Long> retry = new ArrayDeque<Long>();
+    private final HashMap<Long, byte[]> finished = new HashMap<Long, byte[]>();
+    private final HashMap<Long, Long> counts = new HashMap<Long, Long>();
+
+    public ShardCoordinator(String command, VariableOrder order,
+            boolean debug, String format, String token) {
+        this.command = command;
+        this.order = order;
+        this.debug = debug;
+        this.format = format;
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+        this.chunks = (order.assignments() + CHUNK - 1) / CHUNK;
+    }
+
+    // Time in milliseconds a worker may take to answer, after which its
+    // connection is dropped and its range handed out again
+    public void setTimeout(int millis) {
+        timeout = millis;
+    }
+
+    // A random token for a run whose workers are all forked
+    public static String newToken() {
+        byte[] bytes = new byte[16];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder str = new StringBuilder();
+        for (byte b : bytes) {
+            str.append(String.format("%02x", b & 0xff));
+        }
+        return str.toString();
+    }
+
+    // Starts a worker JVM on this machine with the current class path,
+    // passing it the token through its environment
+    public static Process fork(int port, String token) throws IOException {
+        String java = System.getProperty("java.home") + File.separator
+                + "bin" + File.separator + "java";
+        ProcessBuilder builder = new ProcessBuilder(java, "-cp",
+                System.getProperty("java.class.path"), "PA4BoolSat",
+                "--worker", "127.0.0.1:" + port);
+        builder.environment().put(TOKEN_VARIABLE, token);
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        return builder.start();
+    }
+
+    // Accepts workers on the server socket and writes the merged listing
+    // through the writer, which only produces the header, and out, which
+    // receives the rendered ranges. When local workers were forked, the run
+    // fails if all of them exit with work left and nobody else is
+    // connected. Returns the number of satisfying assignments.
+    public long run(final ServerSocket server, AssignmentWriter writer,
+            OutputStream out, ArrayList<Process> local) throws IOException {
+        Thread acceptor = new Thread(() -> {
+            while (true) {
+                final Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (IOException e) {
+                    return;
+                }
+                Thread serving = new Thread(() -> serve(socket));
+                serving.setDaemon(true);
+                serving.start();
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        boolean headed = false;
+        long count = 0;
+        File spoolFile = null;
+        OutputStream spool = null;
+        try {
+            for (long chunk = 0; chunk < chunks; chunk++) {
+                byte[] bytes;
+                long found;
+                synchronized (this) {
+                    while (!finished.containsKey(chunk)) {
+                        if (live == 0 && !local.isEmpty() && allExited(local)) {
+                            throw new IOException("All workers exited");
+                        }
+                        try {
+                            wait(1000);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new IOException("Interrupted");
+                        }
+                    }
+                    bytes = finished.remove(chunk);
+                    found = counts.remove(chunk);
+                }
+                count = count + found;
+                if (!headed && found > 0) {
+                    writer.begin(command, true);
+                    writer.flush();
+                    if (spool != null) {
+                        spool.close();
+                        copy(spoolFile, out);
+                    }
+                    headed = true;
+                }
+                if (headed) {
+                    out.write(bytes);
+                } else if (bytes.length > 0) {
+                    if (spool == null) {
+                        spoolFile = File.createTempFile("shard", ".spool");
+                        spool = new BufferedOutputStream(
+                                new FileOutputStream(spoolFile), 1 << 20);
+                    }
+                    spool.write(bytes);
+                }
+                synchronized (this) {
+                    written = chunk + 1;
+                    notifyAll();
+                }
+            }
+            if (!headed) {
+                writer.begin(command, false);
+                writer.flush();
+                if (spool != null) {
+                    spool.close();
+                    copy(spoolFile, out);
+                }
+            }
+            out.flush();
+        } finally {
+            synchronized (this) {
+                written = chunks;
+                notifyAll();
+            }
+            server.close();
+            if (spoolFile != null) {
+                spool.close();
+                spoolFile.delete();
+            }
+        }
+        return count;
+    }
+
+    // Feeds ranges to one connected worker until there are none left
+    private void serve(Socket socket) {
+        long chunk = -1;
+        boolean joined = false;
+        try (Socket s = socket) {
+            s.setSoTimeout(timeout);
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(s.getInputStream()));
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(s.getOutputStream()));
+            if (!authenticate(in)) {
+                return;
+            }
+            synchronized (this) {
+                live = live + 1;
+                window = WINDOW_PER_WORKER * Math.max(live, 1);
+                joined = true;
+                notifyAll();
+            }
+            byte[] text = command.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(text.length);
+            out.write(text);
+            out.writeBoolean(debug);
+            out.writeUTF(format);
+            while (true) {
+                chunk = take();
+                if (chunk < 0) {
+                    out.writeLong(-1);
+                    out.flush();
+                    return;
+                }
+                long start = chunk * CHUNK;
+                out.writeLong(start);
+                out.writeLong(Math.min(start + CHUNK, order.assignments()));
+                out.flush();
+                long found = in.readLong();
+                int length = in.readInt();
+                if (found < 0 || length < 0) {
+                    throw new IOException("Corrupt range from worker");
+                }
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                synchronized (this) {
+                    finished.put(chunk, bytes);
+                    counts.put(chunk, found);
+                    notifyAll();
+                }
+                chunk = -1;
+            }
+        } catch (IOException e) {
+            // The range in progress goes to another worker
+        } finally {
+            synchronized (this) {
+                if (chunk >= 0) {
+                    retry.add(chunk);
+                }
+                if (joined) {
+                    live = live - 1;
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    // Reads the token a peer opens with and checks it against the run's
+    private boolean authenticate(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_TOKEN) {
+            return false;
+        }
+        byte[] given = new byte[length];
+        in.readFully(given);
+        return MessageDigest.isEqual(given, token);
+    }
+
+    // Returns the next range for a worker, waiting while the output is too
+    // far behind, or -1 once everything has been written
+    private synchronized long take() throws IOException {
+        while (true) {
+            if (written == chunks) {
+                return -1;
+            }
+            if (!retry.isEmpty()) {
+                return retry.remove();
+            }
+            if (nextChunk < chunks && nextChunk < written + window) {
+                nextChunk = nextChunk + 1;
+                return nextChunk - 1;
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted");
+            }
+        }
+    }
+
+    private static boolean allExited(ArrayList<Process> processes) {
+        for (Process process : processes) {
+            if (process.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void copy(File file, OutputStream out) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] buffer = new byte[1 << 16];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+        }
+    }
+}
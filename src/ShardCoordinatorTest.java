@@ -0,0 +1,145 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import bool_exp.BoolSatParser;
+
+// Junit testing of sharded enumeration against the single process listing
+public class ShardCoordinatorTest {
+    // 2^20 assignments, so 16 ranges for the workers to share
+    private static final String EXPRESSION = "(v0 || !v1 || v2) && "
+            + "(!v3 || v4 || v5) && (v6 || v7 || !v8) && (!v9 || !v10) && "
+            + "(v11 || v12 || v13 || !v14) && (v15 || !v16 || v17) && "
+            + "(v18 || !v19)";
+
+    // Lists the expression in a single process
+    private byte[] single(boolean debug, String format) throws IOException {
+        ExpressionIndex index = ExpressionIndex.of(
+                BoolSatParser.parse(EXPRESSION));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AssignmentWriter writer = format.equals("binary")
+                ? new BinaryAssignmentWriter(index.order(), debug, out)
+                : new TextAssignmentWriter(index.order(), debug, out);
+        PA4BoolSat.printIndexed(new InterpretedEvaluator(index),
+                index.order(), writer, debug, CancellationToken.NONE,
+                EXPRESSION);
+        return out.toByteArray();
+    }
+
+    // Tests that --shard 3 with forked workers writes exactly the single
+    // process listing
+    @Test
+    public void testMatchesSingleProcess() throws Exception {
+        VariableOrder order = VariableOrder.of(BoolSatParser.parse(EXPRESSION));
+        for (String[] settings : new String[][] { { "text", "" },
+                { "text", "DEBUG" }, { "binary", "" } }) {
+            boolean debug = settings[1].equals("DEBUG");
+            File out = File.createTempFile("sharded", ".out");
+            try {
+                ArrayList<String> args = new ArrayList<String>();
+                args.add("file");
+                if (debug) {
+                    args.add("DEBUG");
+                }
+                args.add("--shard");
+                args.add("3");
+                args.add("--format");
+                args.add(settings[0]);
+                args.add("--out");
+                args.add(out.getPath());
+                PA4BoolSat.printSharded(Options.parse(
+                        args.toArray(new String[args.size()])), order,
+                        EXPRESSION);
+                Assert.assertArrayEquals(single(debug, settings[0]),
+                        Files.readAllBytes(out.toPath()));
+            } finally {
+                out.delete();
+            }
+        }
+    }
+
+    // Tests that runs no worker could ever join, and ports out of range,
+    // are refused up front
+    @Test
+    public void testBadSettings() {
+        VariableOrder order = VariableOrder.of(BoolSatParser.parse(EXPRESSION));
+        for (String[] args : new String[][] { { "file", "--shard", "0" },
+                { "file", "--shard", "-2" },
+                { "file", "--shard", "2", "--port", "65536" } }) {
+            try {
+                PA4BoolSat.printSharded(Options.parse(args), order,
+                        EXPRESSION);
+                Assert.fail("accepted " + String.join(" ", args));
+            } catch (IOException e) {
+                Assert.assertTrue(e.getMessage().startsWith("--"));
+            }
+        }
+    }
+
+    // Connects to the coordinator and sends a token
+    private Socket connect(ServerSocket server, String token)
+            throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(),
+                server.getLocalPort());
+        DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+        byte[] bytes = token.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        out.flush();
+        return socket;
+    }
+
+    // Tests that a peer with the wrong token is turned away and that the
+    // range of a worker which stops answering is handed to another one
+    @Test
+    public void testTokenAndTimeout() throws Exception {
+        ExpressionIndex index = ExpressionIndex.of(
+                BoolSatParser.parse(EXPRESSION));
+        ServerSocket server = new ServerSocket(0, 50,
+                InetAddress.getLoopbackAddress());
+        ShardCoordinator coordinator = new ShardCoordinator(EXPRESSION,
+                index.order(), false, "text", "secret");
+        coordinator.setTimeout(500);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AssignmentWriter writer = new TextAssignmentWriter(index.order(),
+                false, out);
+        Thread running = new Thread(() -> {
+            try {
+                coordinator.run(server, writer, out,
+                        new ArrayList<Process>());
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        running.start();
+
+        try (Socket intruder = connect(server, "guess")) {
+            Assert.assertEquals(-1, intruder.getInputStream().read());
+        }
+        try (Socket stuck = connect(server, "secret")) {
+            DataInputStream in = new DataInputStream(stuck.getInputStream());
+            in.readFully(new byte[in.readInt()]);
+            in.readBoolean();
+            in.readUTF();
+            Assert.assertEquals(0, in.readLong());
+            in.readLong();
+            // Never answers; the coordinator gives up on the range
+            Assert.assertEquals(-1, in.read());
+        }
+        new ShardWorker("127.0.0.1:" + server.getLocalPort(), "secret").run();
+        running.join(60000);
+        Assert.assertFalse(running.isAlive());
+        Assert.assertArrayEquals(single(false, "text"), out.toByteArray());
+    }
+}
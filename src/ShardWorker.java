@@ -0,0 +1,103 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import bool_exp.ASTNode;
+import bool_exp.BoolSatParser;
+
+/*
+ * The worker side of a sharded enumeration, started with
+ * "--worker HOST:PORT".
+ *
+ * It connects to a ShardCoordinator, sends the token of the run, which it
+ * takes from the ShardCoordinator.TOKEN_VARIABLE environment variable when
+ * started from the command line, receives the expression and the output
+ * settings, and then renders the listing for one index range after another
+ * until the coordinator sends a negative start. See ShardCoordinator for the
+ * protocol.
+ */
+public class ShardWorker {
+
+    private final String host;
+    private final int port;
+    private final String token;
+
+    public ShardWorker(String address, String token) throws IOException {
+        if (token == null) {
+            throw new IOException("--worker needs "
+                    + ShardCoordinator.TOKEN_VARIABLE);
+        }
+        this.token = token;
+        int colon = address.lastIndexOf(':');
+        if (colon < 0) {
+            throw new IOException("--worker needs HOST:PORT");
+        }
+        this.host = address.substring(0, colon);
+        try {
+            this.port = Integer.parseInt(address.substring(colon + 1));
+        } catch (NumberFormatException e) {
+            throw new IOException("--worker needs HOST:PORT");
+        }
+    }
+
+    // Serves ranges until the coordinator is done with this worker
+    public void run() throws IOException {
+        try (Socket socket = new Socket(host, port)) {
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(socket.getOutputStream()));
+            byte[] secret = token.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(secret.length);
+            out.write(secret);
+            out.flush();
+            byte[] text = new byte[in.readInt()];
+            in.readFully(text);
+            String command = new String(text, StandardCharsets.UTF_8);
+            boolean debug = in.readBoolean();
+            String format = in.readUTF();
+
+            ASTNode root = BoolSatParser.parse(command);
+            ExpressionIndex index = ExpressionIndex.of(root);
+            VariableOrder order = index.order();
+            Evaluator evaluator = PA4BoolSat.createEvaluator(index);
+            ByteArrayOutputStream rendered = new ByteArrayOutputStream();
+            AssignmentWriter writer = format.equals("binary")
+                    ? new BinaryAssignmentWriter(order, debug, rendered)
+                    : new TextAssignmentWriter(order, debug, rendered);
+            while (true) {
+                long start = in.readLong();
+                if (start < 0) {
+                    return;
+                }
+                long end = in.readLong();
+                long count = 0;
+                for (long bits = start; bits < end; bits++) {
+                    boolean value = evaluator.eval(bits);
+                    if (value) {
+                        count = count + 1;
+                    }
+                    if (debug || value) {
+                        writer.write(bits, value);
+                    }
+                }
+                // Only the last range may end in a partial truth table word
+                if (end == order.assignments()) {
+                    writer.finish();
+                } else {
+                    writer.flush();
+                }
+                out.writeLong(count);
+                out.writeInt(rendered.size());
+                rendered.writeTo(out);
+                out.flush();
+                rendered.reset();
+            }
+        }
+    }
+}
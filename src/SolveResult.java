@@ -0,0 +1,51 @@
+/*
+ * The answer of a SatEngine: SAT with a model of the expression variables,
+ * UNSAT, or UNKNOWN when the engine stopped before deciding.
+ */
+public class SolveResult {
+
+    public enum Status {
+        SAT, UNSAT, UNKNOWN
+    }
+
+    public final Status status;
+    // Value of each expression variable by id, for SAT results only
+    public final boolean[] model;
+    // Name of the engine that produced the result
+    public final String engine;
+
+    private SolveResult(Status status, boolean[] model, String engine) {
+        this.status = status;
+        this.model = model;
+        this.engine = engine;
+    }
+
+    public static SolveResult sat(boolean[] model, String engine) {
+        return new SolveResult(Status.SAT, model, engine);
+    }
+
+    public static SolveResult unsat(String engine) {
+        return new SolveResult(Status.UNSAT, null, engine);
+    }
+
+    public static SolveResult unknown(String engine) {
+        return new SolveResult(Status.UNKNOWN, null, engine);
+    }
+
+    // Whether the result settles the question either way
+    public boolean isDefinitive() {
+        return status != Status.UNKNOWN;
+    }
+
+    // The model in the listing form, "a: true, b: false"
+    public String format(VariableOrder order) {
+        StringBuilder str = new StringBuilder();
+        for (int id = 0; id < order.size(); id++) {
+            if (id > 0) {
+                str.append(", ");
+            }
+            str.append(order.name(id)).append(": ").append(model[id]);
+        }
+        return str.toString();
+    }
+}
@@ -0,0 +1,113 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/*
+ * Writes the listing in the usual text form, "var0: false, var1: true".
+ *
+ * Instead of building a String per line, the line lives in one reusable byte
+ * buffer made of pre-rendered "name: true, " / "name: false, " pieces.
+ * Consecutive indices share their high bits, so only the pieces from the
+ * highest changed variable onwards are copied again for each line.
+ */
+public class TextAssignmentWriter implements AssignmentWriter {
+
+    // Output buffer size; lines are tiny so writes are batched heavily
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    private final OutputStream out;
+    private final boolean debug;
+    private final int size;
+    // Pre-rendered pieces for each variable being false / true
+    private final byte[][] falsePiece;
+    private final byte[][] truePiece;
+    private final byte[] trueEnd = "true\n".getBytes(CHARSET);
+    private final byte[] falseEnd = "false\n".getBytes(CHARSET);
+    // Current line and where each variable's piece starts in it
+    private byte[] line;
+    private final int[] start;
+    private long previous = -1;
+    private long bytes = 0;
+
+    public TextAssignmentWriter(VariableOrder order, boolean debug,
+            OutputStream out) {
+        this.out = new BufferedOutputStream(out, BUFFER_SIZE);
+        this.debug = debug;
+        this.size = order.size();
+        falsePiece = new byte[size][];
+        truePiece = new byte[size][];
+        int longest = 0;
+        for (int id = 0; id < size; id++) {
+            falsePiece[id] = (order.name(id) + ": false, ").getBytes(CHARSET);
+            truePiece[id] = (order.name(id) + ": true, ").getBytes(CHARSET);
+            longest = longest + falsePiece[id].length;
+        }
+        line = new byte[longest + falseEnd.length];
+        start = new int[size + 1];
+    }
+
+    public void begin(String command, boolean sat) throws IOException {
+        byte[] input = ("input: " + command + "\n").getBytes(CHARSET);
+        byte[] status = (sat ? "SAT\n" : "UNSAT\n").getBytes(CHARSET);
+        out.write(input);
+        out.write(status);
+        bytes = bytes + input.length + status.length;
+    }
+
+    public void write(long bits, boolean value) throws IOException {
+        int end = render(bits);
+        if (debug) {
+            byte[] suffix = value ? trueEnd : falseEnd;
+            System.arraycopy(suffix, 0, line, end, suffix.length);
+            out.write(line, 0, end + suffix.length);
+            bytes = bytes + end + suffix.length;
+        } else if (end == 0) {
+            // An order without variables lists empty lines
+            out.write('\n');
+            bytes = bytes + 1;
+        } else {
+            // Replaces the trailing ", " with the line break
+            line[end - 2] = '\n';
+            out.write(line, 0, end - 1);
+            line[end - 2] = ',';
+            bytes = bytes + end - 1;
+        }
+    }
+
+    public long bytes() {
+        return bytes;
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    public void finish() throws IOException {
+        out.flush();
+    }
+
+    // Brings the line buffer up to date with the given assignment and
+    // returns the length of the rendered pieces
+    private int render(long bits) {
+        int from = 0;
+        if (previous >= 0) {
+            long changed = bits ^ previous;
+            if (changed == 0) {
+                return start[size];
+            }
+            // The highest changed bit belongs to the first changed variable
+            from = size - 64 + Long.numberOfLeadingZeros(changed);
+        }
+        for (int id = from; id < size; id++) {
+            boolean value = ((bits >>> (size - 1 - id)) & 1L) != 0;
+            byte[] piece = value ? truePiece[id] : falsePiece[id];
+            System.arraycopy(piece, 0, line, start[id], piece.length);
+            start[id + 1] = start[id] + piece.length;
+        }
+        previous = bits;
+        return start[size];
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * The value of an expression under every assignment, one bit per assignment
+ * index packed into longs (bit i % 64 of word i / 64).
+ *
+ * Being an Evaluator itself, a table can stand in for the expression when a
+ * listing is printed from a cached result.
+ */
+public class TruthTable implements Evaluator {
+
+    // Largest table kept on the heap: 2^24 bits is 2MB
+    public static final int MAX_VARIABLES = 24;
+
+    private final long[] words;
+
+    public TruthTable(long[] words) {
+        this.words = words;
+    }
+
+    // Evaluates every assignment of the order into a table
+    public static TruthTable of(Evaluator evaluator, VariableOrder order) {
+        return of(evaluator, order, CancellationToken.NONE);
+    }
+
+    // Evaluates the table, polling the token every CHECK_INTERVAL
+    // assignments
+    public static TruthTable of(Evaluator evaluator, VariableOrder order,
+            CancellationToken token) {
+        long total = order.assignments();
+        long[] words = new long[(int) ((total + 63) / 64)];
+        for (long bits = 0; bits < total; bits++) {
+            if ((bits & (Budget.CHECK_INTERVAL - 1)) == 0) {
+                token.check();
+            }
+            if (evaluator.eval(bits)) {
+                words[(int) (bits >>> 6)] |= 1L << bits;
+            }
+        }
+        return new TruthTable(words);
+    }
+
+    public boolean eval(long bits) {
+        return ((words[(int) (bits >>> 6)] >>> bits) & 1L) != 0;
+    }
+
+    // Number of satisfying assignments
+    public long count() {
+        long count = 0;
+        for (long word : words) {
+            count = count + Long.bitCount(word);
+        }
+        return count;
+    }
+
+    public long[] words() {
+        return words;
+    }
+}
@@ -0,0 +1,88 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import bool_exp.ASTNode;
+
+/*
+ * The variables of an expression in the order PA4BoolSat prints them.
+ *
+ * Variables are sorted by name and numbered from 0. An assignment is packed
+ * into a long where variable 0 is the most significant of the n low bits, so
+ * counting an index from 0 to 2^n - 1 visits the assignments in exactly the
+ * order the sorted listing expects (false sorts before true).
+ */
+public class VariableOrder {
+
+    // Largest number of variables an assignment index can hold
+    public static final int MAX_VARIABLES = 62;
+
+    private final String[] names;
+    private final HashMap<String, Integer> ids = new HashMap<String, Integer>();
+
+    public VariableOrder(ArrayList<String> sortedNames) {
+        names = sortedNames.toArray(new String[sortedNames.size()]);
+        for (int i = 0; i < names.length; i++) {
+            ids.put(names[i], i);
+        }
+    }
+
+    // Collects and sorts the variables of an expression
+    public static VariableOrder of(ASTNode root) {
+        return ExpressionIndex.of(root).order();
+    }
+
+    // Numbers the variables in the order they first appear, left to right.
+    // Variables that appear close together in the expression end up close
+    // together in the order, which keeps decision diagrams small.
+    public static VariableOrder byOccurrence(ASTNode root) {
+        ArrayList<String> list = new ArrayList<String>();
+        HashSet<String> seen = new HashSet<String>();
+        ArrayDeque<ASTNode> pending = new ArrayDeque<ASTNode>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            ASTNode node = pending.pop();
+            if (node.isId()) {
+                if (seen.add(node.getId())) {
+                    list.add(node.getId());
+                }
+                continue;
+            }
+            if (node.child2 != null) {
+                pending.push(node.child2);
+            }
+            pending.push(node.child1);
+        }
+        return new VariableOrder(list);
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    // Returns the dense id of a variable, or -1 when it is not present
+    public int id(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    // Bit position of a variable inside an assignment index
+    public int shift(int id) {
+        return names.length - 1 - id;
+    }
+
+    // Value of a variable inside an assignment index
+    public boolean value(long bits, int id) {
+        return ((bits >>> shift(id)) & 1L) != 0;
+    }
+
+    // Number of assignments, i.e. 2^n
+    public long assignments() {
+        return 1L << names.length;
+    }
+}
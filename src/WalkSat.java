@@ -0,0 +1,241 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/*
+ * Stochastic local search over the clauses of a CnfFormula, in the style of
+ * WalkSAT: start from a random assignment and keep flipping one variable of
+ * a random unsatisfied clause until none is left or the flip budget runs
+ * out. It can find models of large satisfiable inputs quickly but can never
+ * show that there are none.
+ *
+ * Everything the flip choice needs is kept up to date in int arrays: the
+ * number of true literals of each clause, the XOR of the variables behind
+ * them (which names the only one when there is exactly one), and for each
+ * variable its break count (clauses that only it satisfies) and make count
+ * (unsatisfied clauses it appears in). A flip touches only the clauses the
+ * variable occurs in.
+ */
+public class WalkSat {
+
+    // Chance of a random rather than greedy flip; close to the best known
+    // setting for random 3-SAT
+    public static final double NOISE = 0.567;
+
+    private final int vars;
+    // Clause literals back to back, clause c taking start[c] to start[c + 1]
+    private final int[] lits;
+    private final int[] start;
+    // Clauses containing each literal, in the same layout
+    private final int[] occurs;
+    private final int[] occursStart;
+    private final boolean trivial;
+
+    private final boolean[] value;
+    private final int[] numTrue;
+    private final int[] trueXor;
+    private final int[] breaks;
+    private final int[] makes;
+    // Unsatisfied clauses, and where each one sits in that list
+    private final int[] unsat;
+    private final int[] unsatIndex;
+    private int unsatCount = 0;
+
+    private final Random random;
+    private long flips = 0;
+
+    // Prepares a walker for the formula. Literals are stored as 2 * var + 1
+    // when negative, with variables numbered from 0.
+    public WalkSat(CnfFormula cnf, long seed) {
+        this.vars = cnf.variables();
+        this.random = new Random(seed);
+        int[][] clauses = new int[cnf.clauses().size()][];
+        int clauseCount = 0;
+        int litCount = 0;
+        boolean empty = false;
+        for (int[] clause : cnf.clauses()) {
+            int[] normal = normalize(clause);
+            if (normal == null) {
+                continue;
+            }
+            empty = empty || normal.length == 0;
+            clauses[clauseCount] = normal;
+            clauseCount = clauseCount + 1;
+            litCount = litCount + normal.length;
+        }
+        this.trivial = empty;
+        lits = new int[litCount];
+        start = new int[clauseCount + 1];
+        int[] perLiteral = new int[2 * vars + 1];
+        for (int c = 0; c < clauseCount; c++) {
+            start[c + 1] = start[c] + clauses[c].length;
+            System.arraycopy(clauses[c], 0, lits, start[c],
+                    clauses[c].length);
+            for (int lit : clauses[c]) {
+                perLiteral[lit + 1]++;
+            }
+        }
+        occursStart = new int[2 * vars + 1];
+        for (int lit = 0; lit < 2 * vars; lit++) {
+            occursStart[lit + 1] = occursStart[lit] + perLiteral[lit + 1];
+        }
+        occurs = new int[litCount];
+        int[] fill = Arrays.copyOf(occursStart, 2 * vars);
+        for (int c = 0; c < clauseCount; c++) {
+            for (int i = start[c]; i < start[c + 1]; i++) {
+                occurs[fill[lits[i]]++] = c;
+            }
+        }
+        value = new boolean[vars];
+        numTrue = new int[clauseCount];
+        trueXor = new int[clauseCount];
+        breaks = new int[vars];
+        makes = new int[vars];
+        unsat = new int[clauseCount];
+        unsatIndex = new int[clauseCount];
+    }
+
+    // Converts a DIMACS clause to internal literals without repeats;
+    // returns null for a clause that holds for every assignment
+    private static int[] normalize(int[] clause) {
+        int[] out = new int[clause.length];
+        int size = 0;
+        for (int dimacs : clause) {
+            int lit = dimacs > 0 ? 2 * (dimacs - 1) : 2 * (-dimacs - 1) + 1;
+            boolean repeat = false;
+            for (int i = 0; i < size; i++) {
+                if (out[i] == (lit ^ 1)) {
+                    return null;
+                }
+                repeat = repeat || out[i] == lit;
+            }
+            if (!repeat) {
+                out[size] = lit;
+                size = size + 1;
+            }
+        }
+        return Arrays.copyOf(out, size);
+    }
+
+    // Flips made so far
+    public long flips() {
+        return flips;
+    }
+
+    // Walks for at most maxFlips flips; returns the value of every variable
+    // v at v - 1, or null when no model was found
+    public boolean[] solve(long maxFlips, CancellationToken token) {
+        if (trivial) {
+            return null;
+        }
+        randomize();
+        long end = flips + maxFlips;
+        while (unsatCount > 0) {
+            if (flips == end) {
+                return null;
+            }
+            if ((flips & 1023) == 0) {
+                token.check();
+            }
+            int c = unsat[random.nextInt(unsatCount)];
+            flip(pick(c));
+        }
+        return Arrays.copyOf(value, vars);
+    }
+
+    // Chooses the variable of an unsatisfied clause to flip: one that
+    // breaks nothing if there is one, else at random with probability
+    // NOISE, else the one breaking fewest clauses, preferring higher make
+    private int pick(int c) {
+        int best = -1;
+        for (int i = start[c]; i < start[c + 1]; i++) {
+            int v = lits[i] >> 1;
+            if (best == -1 || breaks[v] < breaks[best]
+                    || (breaks[v] == breaks[best] && makes[v] > makes[best])) {
+                best = v;
+            }
+        }
+        if (breaks[best] > 0 && random.nextDouble() < NOISE) {
+            int i = start[c] + random.nextInt(start[c + 1] - start[c]);
+            return lits[i] >> 1;
+        }
+        return best;
+    }
+
+    // Starts over from a random assignment, recomputing every count
+    private void randomize() {
+        Arrays.fill(breaks, 0);
+        Arrays.fill(makes, 0);
+        unsatCount = 0;
+        for (int v = 0; v < vars; v++) {
+            value[v] = random.nextBoolean();
+        }
+        for (int c = 0; c < numTrue.length; c++) {
+            numTrue[c] = 0;
+            trueXor[c] = 0;
+            for (int i = start[c]; i < start[c + 1]; i++) {
+                if (isTrue(lits[i])) {
+                    numTrue[c]++;
+                    trueXor[c] ^= lits[i] >> 1;
+                }
+            }
+            if (numTrue[c] == 0) {
+                addUnsat(c);
+            } else if (numTrue[c] == 1) {
+                breaks[trueXor[c]]++;
+            }
+        }
+    }
+
+    private boolean isTrue(int lit) {
+        return value[lit >> 1] == ((lit & 1) == 0);
+    }
+
+    // Flips a variable and updates the counts of the clauses it occurs in
+    private void flip(int v) {
+        flips = flips + 1;
+        value[v] = !value[v];
+        int made = value[v] ? 2 * v : 2 * v + 1;
+        int lost = made ^ 1;
+        for (int k = occursStart[made]; k < occursStart[made + 1]; k++) {
+            int c = occurs[k];
+            numTrue[c]++;
+            trueXor[c] ^= v;
+            if (numTrue[c] == 1) {
+                removeUnsat(c);
+                breaks[v]++;
+            } else if (numTrue[c] == 2) {
+                breaks[trueXor[c] ^ v]--;
+            }
+        }
+        for (int k = occursStart[lost]; k < occursStart[lost + 1]; k++) {
+            int c = occurs[k];
+            numTrue[c]--;
+            trueXor[c] ^= v;
+            if (numTrue[c] == 0) {
+                addUnsat(c);
+                breaks[v]--;
+            } else if (numTrue[c] == 1) {
+                breaks[trueXor[c]]++;
+            }
+        }
+    }
+
+    private void addUnsat(int c) {
+        unsatIndex[c] = unsatCount;
+        unsat[unsatCount] = c;
+        unsatCount = unsatCount + 1;
+        for (int i = start[c]; i < start[c + 1]; i++) {
+            makes[lits[i] >> 1]++;
+        }
+    }
+
+    private void removeUnsat(int c) {
+        unsatCount = unsatCount - 1;
+        int last = unsat[unsatCount];
+        unsat[unsatIndex[c]] = last;
+        unsatIndex[last] = unsatIndex[c];
+        for (int i = start[c]; i < start[c + 1]; i++) {
+            makes[lits[i] >> 1]--;
+        }
+    }
+}
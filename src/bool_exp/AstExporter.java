@@ -0,0 +1,240 @@
+package bool_exp;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/** class AstExporter --
+ *
+ * Writes an Abstract Syntax Tree straight to a Writer, either as a GraphViz
+ * dot digraph or as a compact JSON list of nodes and edges. Nodes are
+ * numbered 0, 1, 2, ... in the order they are written, so the same tree
+ * always gives the same output.
+ *
+ * The tree is walked with an explicit stack, so long chains of && and ||
+ * cannot overflow the call stack, and by default nothing but that stack is
+ * kept in memory. Output can be capped:
+ *      - maxDepth: subtrees whose root lies deeper than this are each
+ *        replaced by a single "..." node
+ *      - maxNodes: the walk stops after this many nodes; the output is then
+ *        marked as truncated (a trailing comment in dot, "truncated" in
+ *        JSON)
+ *
+ * With collapse turned on, a subtree is written only once however often it
+ * occurs: nodes reached twice through sharing, and subtrees that are
+ * structurally identical, both become one node with several incoming
+ * edges. This needs a table of the subtrees written so far, so it costs
+ * memory in proportion to the output.
+ *
+ * JSON output has the form
+ *      {"elements":[
+ *      {"node":0,"type":"AND"},
+ *      {"node":1,"type":"ID","id":"a"},
+ *      {"edge":[0,1]},
+ *      ...
+ *      ],"truncated":false}
+ * where the elements come one per line in the same order as in dot.
+ */
+public class AstExporter {
+    public enum Format {
+        DOT, JSON
+    }
+
+    private final Format format;
+    private int maxDepth = Integer.MAX_VALUE;
+    private long maxNodes = Long.MAX_VALUE;
+    private boolean collapse = false;
+
+    /* State of the export in progress */
+    private Writer out;
+    private long nodes;
+    private boolean first;
+
+    public AstExporter(Format format) {
+        this.format = format;
+    }
+
+    /* Subtrees rooted deeper than this (the root is at depth 0) are elided */
+    public void setMaxDepth(int maxDepth) {
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("Negative depth " + maxDepth);
+        }
+        this.maxDepth = maxDepth;
+    }
+
+    /* At most this many nodes are written */
+    public void setMaxNodes(long maxNodes) {
+        if (maxNodes < 0) {
+            throw new IllegalArgumentException("Negative node count " + maxNodes);
+        }
+        this.maxNodes = maxNodes;
+    }
+
+    /* Whether shared and identical subtrees are written only once */
+    public void setCollapse(boolean collapse) {
+        this.collapse = collapse;
+    }
+
+    /* export(ASTNode, Writer) --
+     * Writes the tree rooted at root, which may be null for an empty
+     * expression, and flushes the writer.
+     */
+    public void export(ASTNode root, Writer out) throws IOException {
+        this.out = out;
+        this.nodes = 0;
+        this.first = true;
+        out.write(format == Format.DOT ? "digraph expression_tree {\n"
+                : "{\"elements\":[\n");
+        boolean complete = root == null
+                || (collapse ? writeCollapsed(root) : writeTree(root));
+        if (format == Format.DOT) {
+            if (!complete)
+                out.write("\t// truncated after " + nodes + " nodes\n");
+            out.write("}\n");
+        } else {
+            out.write("\n],\"truncated\":" + !complete + "}\n");
+        }
+        out.flush();
+        this.out = null;
+    }
+
+    /* Writes the nodes in preorder, each one followed by the edge from its
+     * parent. Returns false if maxNodes cut the walk short. */
+    private boolean writeTree(ASTNode root) throws IOException {
+        /* Pending nodes, with their depth and their parent's number */
+        ArrayList<ASTNode> pending = new ArrayList<ASTNode>();
+        ArrayList<long[]> place = new ArrayList<long[]>();
+        pending.add(root);
+        place.add(new long[] { 0, -1 });
+        while (!pending.isEmpty()) {
+            if (nodes == maxNodes)
+                return false;
+            ASTNode cur = pending.remove(pending.size() - 1);
+            long[] where = place.remove(place.size() - 1);
+            long id = nodes;
+            if (where[0] > maxDepth) {
+                writeElided(id);
+            } else {
+                writeNode(id, cur);
+                /* child2 goes on the stack first so child1 comes out first */
+                if (cur.child2 != null) {
+                    pending.add(cur.child2);
+                    place.add(new long[] { where[0] + 1, id });
+                }
+                if (cur.child1 != null) {
+                    pending.add(cur.child1);
+                    place.add(new long[] { where[0] + 1, id });
+                }
+            }
+            if (where[1] >= 0)
+                writeEdge(where[1], id);
+        }
+        return true;
+    }
+
+    /* Writes the distinct subtrees in postorder, each node followed by the
+     * edges to its children. Returns false if maxNodes cut the walk short. */
+    private boolean writeCollapsed(ASTNode root) throws IOException {
+        /* Number of every node written, by identity and by structure */
+        IdentityHashMap<ASTNode, Long> seen = new IdentityHashMap<ASTNode, Long>();
+        HashMap<String, Long> shapes = new HashMap<String, Long>();
+        ArrayList<ASTNode> pending = new ArrayList<ASTNode>();
+        ArrayList<Integer> depths = new ArrayList<Integer>();
+        /* Numbers of finished children waiting for their parent */
+        ArrayList<Long> done = new ArrayList<Long>();
+        pending.add(root);
+        depths.add(0);
+        /* A node is pushed twice: once to expand it, once (marked by a
+         * negative depth) to write it after its children */
+        while (!pending.isEmpty()) {
+            ASTNode cur = pending.remove(pending.size() - 1);
+            int depth = depths.remove(depths.size() - 1);
+            Long known = seen.get(cur);
+            if (depth >= 0 && known != null) {
+                done.add(known);
+                continue;
+            }
+            if (depth > maxDepth) {
+                if (nodes == maxNodes)
+                    return false;
+                writeElided(nodes);
+                done.add(nodes - 1);
+                continue;
+            }
+            if (depth >= 0 && !cur.isId()) {
+                pending.add(cur);
+                depths.add(-depth - 1);
+                if (cur.child2 != null) {
+                    pending.add(cur.child2);
+                    depths.add(depth + 1);
+                }
+                pending.add(cur.child1);
+                depths.add(depth + 1);
+                continue;
+            }
+            /* All children of cur are finished, in order, at the end of done */
+            int arity = cur.isId() ? 0 : cur.child2 != null ? 2 : 1;
+            StringBuilder shape = new StringBuilder(cur.getNodeType());
+            if (cur.isId())
+                shape.append(' ').append(cur.getId());
+            for (int i = done.size() - arity; i < done.size(); i++)
+                shape.append(' ').append(done.get(i));
+            Long id = shapes.get(shape.toString());
+            if (id == null) {
+                if (nodes == maxNodes)
+                    return false;
+                id = nodes;
+                writeNode(id, cur);
+                for (int i = done.size() - arity; i < done.size(); i++)
+                    writeEdge(id, done.get(i));
+                shapes.put(shape.toString(), id);
+            }
+            for (int i = 0; i < arity; i++)
+                done.remove(done.size() - 1);
+            seen.put(cur, id);
+            done.add(id);
+        }
+        return true;
+    }
+
+    private void writeNode(long id, ASTNode cur) throws IOException {
+        nodes++;
+        if (format == Format.DOT) {
+            out.write("\t" + id);
+            if (cur.isId())
+                out.write(" [label=\"ID: " + cur.getId() + "\" shape=box];\n");
+            else
+                out.write(" [label=\"" + cur.getNodeType() + "\"];\n");
+        } else {
+            element("{\"node\":" + id + ",\"type\":\"" + cur.getNodeType()
+                    + (cur.isId() ? "\",\"id\":\"" + cur.getId() : "")
+                    + "\"}");
+        }
+    }
+
+    /* Stands in for a subtree below maxDepth */
+    private void writeElided(long id) throws IOException {
+        nodes++;
+        if (format == Format.DOT)
+            out.write("\t" + id + " [label=\"...\" shape=plaintext];\n");
+        else
+            element("{\"node\":" + id + ",\"type\":\"...\"}");
+    }
+
+    private void writeEdge(long from, long to) throws IOException {
+        if (format == Format.DOT)
+            out.write("\t" + from + " -> " + to + ";\n");
+        else
+            element("{\"edge\":[" + from + "," + to + "]}");
+    }
+
+    /* Writes one JSON array element, separated from the previous one */
+    private void element(String json) throws IOException {
+        if (!first)
+            out.write(",\n");
+        first = false;
+        out.write(json);
+    }
+}
@@ -1,5 +1,9 @@
 package bool_exp;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
 /** class BoolSatParser --
  * @author Theodore Sackos (theodorejsackos@email.arizona.edu)
  *
@@ -45,32 +49,35 @@ public class BoolSatParser {
          * parsed and exists fully in the child1 subtree that was passed in.
          *
          * If the token list is not empty (which must be true if the child2 of the OR
-         * expression is checked in the following if statement), and starts with
+         * expression is checked in the following loop condition), and starts with
          * any token other than AND then we are in the wrong production rule and
          * should return the child1 subtree for the correct production rule
          * to handle. */
-        if(toks.empty() || !toks.peek().isOr())
-            return left;
-
-        /* Construct the OR node, and update the token list */
-        toks.next();
-        /* Note: we need to recursively call parseE_PRIME passing the evaluated
-         * node in as the 'child1' param because || is child1 associative. For
-         * example, consider "a || b || c". leftAssociativeFix will be the tree:
-         *     ||
-         *    /  \
-         *    a   b
-         *
-         * Which then needs to be passed back into parseE_PRIME according to the
-         * grammar so that it can be the child1 subtree of:
-         *          ||
-         *         /  \
-         *        ||   c
-         *       /  \
-         *       a   b
-         */
-        ASTNode leftAssociativeFix = ASTNode.createOrNode(left, parseA(toks));
-        return parseE_PRIME(toks, leftAssociativeFix);
+        while(!toks.empty() && toks.peek().isOr()){
+            /* Construct the OR node, and update the token list */
+            toks.next();
+            /* Note: the evaluated node becomes the 'child1' of the next OR
+             * because || is child1 associative. For example, consider
+             * "a || b || c". leftAssociativeFix will be the tree:
+             *     ||
+             *    /  \
+             *    a   b
+             *
+             * Which then goes around the loop again, the grammar's
+             * recursive call to parseE_PRIME, so that it can be the child1
+             * subtree of:
+             *          ||
+             *         /  \
+             *        ||   c
+             *       /  \
+             *       a   b
+             *
+             * Looping instead of recursing keeps long chains of || from
+             * overflowing the stack. */
+            ASTNode leftAssociativeFix = ASTNode.createOrNode(left, parseA(toks));
+            left = leftAssociativeFix;
+        }
+        return left;
     }
 
     private static ASTNode parseA(Lexer toks){
@@ -79,14 +86,14 @@ public class BoolSatParser {
 
     private static ASTNode parseA_PRIME(Lexer toks, ASTNode left){
         /* The comment in this spot in parseE_PRIME() method applies here as well*/
-        if(toks.empty() || !toks.peek().isAnd())
-            return left;
-
-        /* Construct the AND node, update token list */
-        toks.next();
-        /* See the note about child1-associativity fixing in this location of the
-         * parseE_PRIME() method above, the same fix is being applied here */
-        return parseA_PRIME(toks, ASTNode.createAndNode(left, parseB(toks)));
+        while(!toks.empty() && toks.peek().isAnd()){
+            /* Construct the AND node, update token list */
+            toks.next();
+            /* See the note about child1-associativity fixing in this location of the
+             * parseE_PRIME() method above, the same fix is being applied here */
+            left = ASTNode.createAndNode(left, parseB(toks));
+        }
+        return left;
     }
 
     private static ASTNode parseB(Lexer toks){
@@ -133,52 +140,29 @@ public class BoolSatParser {
 
 
     /* dotify(ASTNode) --
-     * The dotify function creates and prints to stdout a GraphViz dot
-     * representation of the AST nodes. Please use a dot utility such
-     * as the website http://sandbox.kidstrythisathome.com/erdos/ or
-     * the dot command line tool provided in most linux distributions
-     * to construct the visual representation of the dot format.
+     * The dotify function creates a GraphViz dot representation of the AST
+     * nodes, numbered from 0. Please use a dot utility such as the website
+     * http://sandbox.kidstrythisathome.com/erdos/ or the dot command line
+     * tool provided in most linux distributions to construct the visual
+     * representation of the dot format. For large trees, write straight to
+     * a stream with dotify(ASTNode, Writer) or an AstExporter instead.
      */
     public static String dotify(ASTNode root){
-        StringBuilder dot = new StringBuilder();
-        dot.append("digraph expression_tree {\n");
-        dotHelp(dot, root);
-        dot.append("}\n");
+        StringWriter dot = new StringWriter();
+        try {
+            dotify(root, dot);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
         return dot.toString();
     }
 
-    /* This function does the recursive traversal of the ASTNodes adding
-     * to the dot output at each step of the traversal */
-    private static void dotHelp(StringBuilder dot, ASTNode cur){
-
-        /* Base case, if we hit null we have bottomed out */
-        if(cur == null)
-            return;
-
-        /* Do the work - define the content of the current node in dot format */
-        if(cur.isId())
-            dot.append(String.format("\t%d [label=\"ID: %s\" shape=box];\n",
-                    cur.hashCode(),
-                    cur.getId()));
-        else
-            dot.append(String.format("\t%d [label=\"%s\"];\n",
-                    cur.hashCode(),
-                    cur.getNodeType()));
-
-        /* recursively define all other children nodes before defining the
-         * digraph edge between the current node and its children. */
-        if(cur.child1 != null){
-            dotHelp(dot, cur.child1);
-            dot.append(String.format("\t%d -> %d;\n",
-                    cur.hashCode(),
-                    cur.child1.hashCode()));
-        }
-        if(cur.child2 != null) {
-            dotHelp(dot, cur.child2);
-            dot.append(String.format("\t%d -> %d;\n",
-                    cur.hashCode(),
-                    cur.child2.hashCode()));
-        }
+    /* dotify(ASTNode, Writer) --
+     * Writes the dot representation to the writer as the tree is walked,
+     * without building it in memory first.
+     */
+    public static void dotify(ASTNode root, Writer out) throws IOException {
+        new AstExporter(AstExporter.Format.DOT).export(root, out);
     }
 
     public static void main(String[] args){
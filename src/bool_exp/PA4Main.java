@@ -1,7 +1,11 @@
 package bool_exp;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.Scanner;
 
 /** PA4Main -
@@ -29,33 +33,41 @@ import java.util.Scanner;
  *
  * Output Dot Representation:
  * digraph expression_tree {
- *  	980546781 [label="OR"];
- *  	2061475679 [label="OR"];
- *  	140435067 [label="AND"];
- *  	1450495309 [label="ID: a" shape=box];
- *  	140435067 -> 1450495309;
- *  	1670782018 [label="ID: b" shape=box];
- *  	140435067 -> 1670782018;
- *  	2061475679 -> 140435067;
- *  	1706377736 [label="AND"];
- *  	468121027 [label="NOT"];
- *  	1804094807 [label="ID: c" shape=box];
- *  	468121027 -> 1804094807;
- *  	1706377736 -> 468121027;
- *  	951007336 [label="ID: d" shape=box];
- *  	1706377736 -> 951007336;
- *  	2061475679 -> 1706377736;
- *  	980546781 -> 2061475679;
- *  	2001049719 [label="AND"];
- *  	1528902577 [label="ID: e" shape=box];
- *  	2001049719 -> 1528902577;
- *  	1927950199 [label="NOT"];
- *  	868693306 [label="ID: f" shape=box];
- *  	1927950199 -> 868693306;
- *  	2001049719 -> 1927950199;
- *  	980546781 -> 2001049719;
+ *  	0 [label="OR"];
+ *  	1 [label="AND"];
+ *  	0 -> 1;
+ *  	2 [label="ID: a" shape=box];
+ *  	1 -> 2;
+ *  	3 [label="ID: b" shape=box];
+ *  	1 -> 3;
+ *  	4 [label="AND"];
+ *  	0 -> 4;
+ *  	5 [label="NOT"];
+ *  	4 -> 5;
+ *  	6 [label="ID: c" shape=box];
+ *  	5 -> 6;
+ *  	7 [label="NOT"];
+ *  	4 -> 7;
+ *  	8 [label="OR"];
+ *  	7 -> 8;
+ *  	9 [label="NOT"];
+ *  	8 -> 9;
+ *  	10 [label="ID: d" shape=box];
+ *  	9 -> 10;
+ *  	11 [label="ID: e" shape=box];
+ *  	8 -> 11;
  * }
  *
+ * Options may follow the file name:
+ *      --json          writes the compact JSON node and edge list described
+ *                      in AstExporter instead of dot
+ *      --max-depth N   replaces the subtrees below depth N with "..." nodes
+ *      --max-nodes N   stops after N nodes
+ *      --collapse      writes shared and identical subtrees only once
+ * Node numbers count up from 0 in the order the nodes are written, so the
+ * output is the same on every run. It is written while the tree is walked,
+ * so even trees with millions of nodes need little memory.
+ *
  * These dot graphs can be rendered into .png/.pdf/.jpg format using the command
  * line dot utility, for example:
  *      dot -Tpng dot.txt > dot.png
@@ -65,9 +77,28 @@ import java.util.Scanner;
 public class PA4Main {
     public static void main(String[] args){
         // Check that some input was provided
-        if(args.length < 1 || args.length > 1){
-            System.err.println("USAGE: java PA4Main <inputFile.txt>");
-            System.exit(1);
+        if(args.length < 1){
+            usage();
+        }
+
+        // Read the options following the file name
+        boolean json = false;
+        boolean collapse = false;
+        int maxDepth = Integer.MAX_VALUE;
+        long maxNodes = Long.MAX_VALUE;
+        for(int i = 1; i < args.length; i++){
+            if(args[i].equals("--json")){
+                json = true;
+            }else if(args[i].equals("--collapse")){
+                collapse = true;
+            }else if(args[i].equals("--max-depth") && i + 1 < args.length){
+                // No tree is deeper than an int can count
+                maxDepth = (int) Math.min(number(args[++i]), Integer.MAX_VALUE);
+            }else if(args[i].equals("--max-nodes") && i + 1 < args.length){
+                maxNodes = number(args[++i]);
+            }else{
+                usage();
+            }
         }
 
         // Get the expression from the file
@@ -84,10 +115,38 @@ public class PA4Main {
         // Call the parser to generate the AST for the expression
         ASTNode root     = BoolSatParser.parse(expression);
 
-        // Traverse the AST and generate a dot representation
-        String dotOutput = BoolSatParser.dotify(root);
+        // Traverse the AST and write its representation to stdout as it goes
+        AstExporter exporter = new AstExporter(json ? AstExporter.Format.JSON
+                : AstExporter.Format.DOT);
+        exporter.setCollapse(collapse);
+        exporter.setMaxDepth(maxDepth);
+        exporter.setMaxNodes(maxNodes);
+        try{
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
+            exporter.export(root, out);
+            out.write("\n");
+            out.flush();
+        }catch(IOException e){
+            System.err.println("Could not write the output: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /* Parses a non-negative option value, exiting with the usage if it is not one */
+    private static long number(String value){
+        try{
+            long n = Long.parseLong(value);
+            if(n >= 0)
+                return n;
+        }catch(NumberFormatException e){
+        }
+        usage();
+        return 0;
+    }
 
-        // Output the dot represenation to stdout
-        System.out.println(dotOutput);
+    private static void usage(){
+        System.err.println("USAGE: java PA4Main <inputFile.txt> [--json] [--collapse]"
+                + " [--max-depth N] [--max-nodes N]");
+        System.exit(1);
     }
 }